@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang.StringUtils;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApiClient;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Transport;
+
+import feign.FeignException;
+import hudson.Util;
+import hudson.util.FormValidation;
+import lombok.Value;
+
+/**
+ * Test Connection results, cached for a short while. Identical checks running at the same time share one request.
+ */
+class ConnectionCheck {
+
+  static final long SUCCESS_TTL_MILLIS = TimeUnit.SECONDS.toMillis(60);
+  static final long FAILURE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  private static final ConcurrentMap<Key, Entry> CACHE = new ConcurrentHashMap<>();
+
+  // the token is only kept as a hash
+  @Value
+  private static class Key {
+    private final Transport transport;
+    private final String apiUrl;
+    private final String appName;
+    private final String tokenHash;
+  }
+
+  private static class Entry {
+    final CompletableFuture<FormValidation> result = new CompletableFuture<>();
+    volatile long expires = Long.MAX_VALUE;
+
+    boolean isExpired(long now) {
+      return expires <= now;
+    }
+  }
+
+  static FormValidation check(String apiUrl, String appName, String apiToken, Transport transport) {
+    long now = System.currentTimeMillis();
+    CACHE.values().removeIf(entry -> entry.isExpired(now));
+
+    Key key = new Key(transport, apiUrl, appName, sha256(apiToken));
+    Entry created = new Entry();
+    Entry entry = CACHE.compute(key, (k, existing) -> existing != null && !existing.isExpired(now) ? existing : created);
+    if (entry == created) {
+      try {
+        FormValidation result = testConnection(apiUrl, appName, apiToken, transport);
+        created.expires = System.currentTimeMillis() + (result.kind == FormValidation.Kind.OK ? SUCCESS_TTL_MILLIS : FAILURE_TTL_MILLIS);
+        created.result.complete(result);
+      }
+      finally {
+        // never leave the coalesced callers waiting
+        if (!created.result.isDone()) {
+          CACHE.remove(key, created);
+          created.result.complete(FormValidation.error("Connection check failed"));
+        }
+      }
+    }
+    return entry.result.join();
+  }
+
+  private static FormValidation testConnection(String apiUrl, String appName, String apiToken, Transport transport) {
+    try {
+      IoExecutor.call(() -> {
+        QRebelRestApiClient.createBasic(apiUrl, QRebelGlobalConfiguration.get().getClient(transport)).testConnection(apiToken, appName);
+        return null;
+      });
+      return FormValidation.ok("Success");
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return FormValidation.error("Connection check interrupted");
+    }
+    catch (RejectedExecutionException e) {
+      return FormValidation.error("Too many QRebel requests in progress, try again later");
+    }
+    catch (FeignException e) {
+      switch (e.status()) {
+        case 401: return FormValidation.error("Authorization failed");
+        case 404: return FormValidation.error("No application found");
+      }
+      Throwable cause = e.getCause();
+      if (cause != null && StringUtils.isNotBlank(cause.toString())) {
+        return FormValidation.error(cause.toString());
+      }
+      return FormValidation.error(e.getMessage());
+    }
+    catch (RuntimeException e) {
+      return FormValidation.error(e.toString());
+    }
+  }
+
+  private static String sha256(String value) {
+    try {
+      return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
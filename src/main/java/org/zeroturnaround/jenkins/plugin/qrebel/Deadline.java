@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget of one gate evaluation. Every stage gets only the time left in the budget,
+ * and the time spent in each stage is kept for the build log.
+ */
+class Deadline {
+
+  private final long started = System.nanoTime();
+  // 0 means no limit
+  private final long budgetNanos;
+  private final List<String> timing = new ArrayList<>();
+  private String stage = "start";
+  private long stageStarted;
+  private boolean stageOpen;
+
+  private Deadline(long budgetNanos) {
+    this.budgetNanos = budgetNanos;
+  }
+
+  static Deadline after(long timeoutSeconds) {
+    return new Deadline(timeoutSeconds > 0 ? TimeUnit.SECONDS.toNanos(timeoutSeconds) : 0L);
+  }
+
+  boolean isLimited() {
+    return budgetNanos > 0;
+  }
+
+  long remainingMillis() {
+    if (!isLimited()) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(budgetNanos - (System.nanoTime() - started)));
+  }
+
+  // at most the given time, cut down to the time left
+  long cap(long millis) {
+    return Math.min(millis, remainingMillis());
+  }
+
+  // ends the current stage and starts the next one, fails when no time is left for it
+  synchronized void stage(String name) {
+    endStage();
+    stage = name;
+    stageStarted = System.nanoTime();
+    stageOpen = true;
+    check();
+  }
+
+  void check() {
+    if (remainingMillis() == 0L) {
+      throw exceeded();
+    }
+  }
+
+  synchronized DeadlineExceededException exceeded() {
+    return new DeadlineExceededException(String.format("QRebel gate exceeded its deadline of %d s during %s",
+        TimeUnit.NANOSECONDS.toSeconds(budgetNanos), stage));
+  }
+
+  // e.g. "push wait 0 ms, query 812 ms, total 815 ms"
+  synchronized String getTiming() {
+    endStage();
+    List<String> parts = new ArrayList<>(timing);
+    parts.add("total " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+    return String.join(", ", parts);
+  }
+
+  private void endStage() {
+    if (stageOpen) {
+      timing.add(stage + " " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stageStarted) + " ms");
+      stageOpen = false;
+    }
+  }
+
+  static class DeadlineExceededException extends RuntimeException {
+    DeadlineExceededException(String message) {
+      super(message);
+    }
+  }
+}
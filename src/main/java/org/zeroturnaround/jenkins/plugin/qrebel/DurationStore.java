@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.EntryPoint;
+
+import hudson.Util;
+import hudson.model.Job;
+
+/**
+ * Per-job columnar store of the slowest percentile duration of every entry point, one row per build
+ * in the order the builds finished, so concurrent builds finishing out of order are all kept.
+ * <ul>
+ *   <li><code>endpoints.txt</code> - the endpoint dictionary, the line number is the endpoint id</li>
+ *   <li><code>builds.col</code> - the build number of each row as a 4-byte int</li>
+ *   <li><code>&lt;id&gt;.col</code> - the duration of one endpoint in each row as an 8-byte long,
+ *   -1 or a file shorter than the row count means no data for that row</li>
+ * </ul>
+ * Queries memory-map only the tail of the two columns they need and sort it by build number.
+ * Like the gate history, only the latest {@link #MAX_ROWS} builds are kept: the older rows and the endpoints
+ * left without data are dropped in batches.
+ */
+class DurationStore {
+
+  static final String DIR_NAME = "qrebel-durations";
+  static final int MAX_ROWS = GateHistory.MAX_ENTRIES;
+  static final int MAX_LIMIT = MAX_ROWS;
+  // rows appended past MAX_ROWS before the store is compacted
+  static final int COMPACT_BATCH = Math.max(1, MAX_ROWS / 10);
+
+  private static final String ENDPOINTS_FILE = "endpoints.txt";
+  private static final String BUILDS_FILE = "builds.col";
+  private static final String COLUMN_SUFFIX = ".col";
+  private static final long MISSING = -1L;
+
+  private static final Logger LOGGER = Logger.getLogger(DurationStore.class.getName());
+  private static final Map<Job<?, ?>, DurationStore> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+  // the cache value must not keep its key reachable, the directory follows the job when it is renamed or moved
+  private final WeakReference<Job<?, ?>> owner;
+  private final List<String> endpoints = new ArrayList<>();
+  private final Map<String, Integer> endpointIds = new HashMap<>();
+  private int rows;
+
+  private DurationStore(Job<?, ?> job) {
+    this.owner = new WeakReference<>(job);
+  }
+
+  static DurationStore forJob(Job<?, ?> job) {
+    return CACHE.computeIfAbsent(job, DurationStore::load);
+  }
+
+  private static DurationStore load(Job<?, ?> job) {
+    DurationStore store = new DurationStore(job);
+    File dir = getDir(job);
+    try {
+      store.loadFiles(dir);
+    }
+    catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to load QRebel durations from " + dir, e);
+    }
+    return store;
+  }
+
+  private static File getDir(Job<?, ?> job) {
+    return new File(job.getRootDir(), DIR_NAME);
+  }
+
+  private File getDir() throws IOException {
+    Job<?, ?> job = owner.get();
+    if (job == null) {
+      throw new IOException("The job of the QRebel durations no longer exists");
+    }
+    return getDir(job);
+  }
+
+  private void loadFiles(File dir) throws IOException {
+    endpoints.clear();
+    endpointIds.clear();
+    rows = 0;
+    File endpointsFile = new File(dir, ENDPOINTS_FILE);
+    if (endpointsFile.exists()) {
+      for (String endpoint : Files.readAllLines(endpointsFile.toPath(), StandardCharsets.UTF_8)) {
+        endpointIds.put(endpoint, endpoints.size());
+        endpoints.add(endpoint);
+      }
+    }
+    File buildsFile = new File(dir, BUILDS_FILE);
+    if (buildsFile.exists()) {
+      try (FileChannel channel = FileChannel.open(buildsFile.toPath(), StandardOpenOption.READ)) {
+        rows = (int) (channel.size() / Integer.BYTES);
+      }
+    }
+  }
+
+  // adds a row for the build, a later row of the same build number replaces the earlier one in queries
+  synchronized boolean append(int number, List<EntryPoint> entryPoints) throws IOException {
+    if (entryPoints == null) {
+      return false;
+    }
+    File dir = getDir();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Cannot create " + dir);
+    }
+
+    Map<Integer, Long> durations = new HashMap<>();
+    for (EntryPoint entryPoint : entryPoints) {
+      if (entryPoint.name == null || entryPoint.duration == null || entryPoint.duration.slowestPercentile == null) {
+        continue;
+      }
+      durations.merge(getOrCreateId(dir, entryPoint.name), entryPoint.duration.slowestPercentile, Math::max);
+    }
+    for (Map.Entry<Integer, Long> duration : durations.entrySet()) {
+      writeDuration(dir, duration.getKey(), duration.getValue());
+    }
+
+    // the build number goes last, a half written row is overwritten by the next append
+    try (FileChannel channel = openForWrite(dir, BUILDS_FILE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES).putInt(number);
+      buffer.flip();
+      channel.truncate((long) rows * Integer.BYTES);
+      channel.write(buffer, (long) rows * Integer.BYTES);
+    }
+    rows++;
+    if (rows >= MAX_ROWS + COMPACT_BATCH) {
+      compact(dir);
+    }
+    return true;
+  }
+
+  // rewrites the store without the rows beyond MAX_ROWS and the endpoints left without data, then swaps the directories
+  private void compact(File dir) throws IOException {
+    int dropped = rows - MAX_ROWS;
+    File compacted = new File(dir.getParentFile(), DIR_NAME + ".compacting");
+    File old = new File(dir.getParentFile(), DIR_NAME + ".old");
+    Util.deleteRecursive(compacted);
+    Util.deleteRecursive(old);
+    if (!compacted.mkdirs()) {
+      throw new IOException("Cannot create " + compacted);
+    }
+
+    copyRows(new File(dir, BUILDS_FILE), new File(compacted, BUILDS_FILE), Integer.BYTES, dropped);
+    List<String> kept = new ArrayList<>();
+    for (int id = 0; id < endpoints.size(); id++) {
+      File column = new File(dir, id + COLUMN_SUFFIX);
+      if (hasData(column, dropped)) {
+        copyRows(column, new File(compacted, kept.size() + COLUMN_SUFFIX), Long.BYTES, dropped);
+        kept.add(endpoints.get(id));
+      }
+    }
+    Files.write(new File(compacted, ENDPOINTS_FILE).toPath(), kept, StandardCharsets.UTF_8);
+
+    Files.move(dir.toPath(), old.toPath());
+    Files.move(compacted.toPath(), dir.toPath());
+    Util.deleteRecursive(old);
+    loadFiles(dir);
+  }
+
+  // whether the column has a duration in a row kept by the compaction
+  private boolean hasData(File column, int from) throws IOException {
+    if (!column.exists()) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(column.toPath(), StandardOpenOption.READ)) {
+      int to = (int) Math.min(rows, channel.size() / Long.BYTES);
+      if (to <= from) {
+        return false;
+      }
+      LongBuffer durations = channel.map(FileChannel.MapMode.READ_ONLY, (long) from * Long.BYTES, (long) (to - from) * Long.BYTES).asLongBuffer();
+      for (int i = 0; i < to - from; i++) {
+        if (durations.get(i) != MISSING) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private void copyRows(File source, File target, int rowBytes, int from) throws IOException {
+    try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+         FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      long start = (long) from * rowBytes;
+      long end = Math.min(in.size(), (long) rows * rowBytes);
+      for (long position = start; position < end; ) {
+        position += in.transferTo(position, end - position, out);
+      }
+    }
+  }
+
+  private int getOrCreateId(File dir, String name) throws IOException {
+    // the dictionary is line based
+    String endpoint = name.replace('\r', ' ').replace('\n', ' ');
+    Integer id = endpointIds.get(endpoint);
+    if (id == null) {
+      Files.write(new File(dir, ENDPOINTS_FILE).toPath(), Collections.singletonList(endpoint), StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      id = endpoints.size();
+      endpointIds.put(endpoint, id);
+      endpoints.add(endpoint);
+    }
+    return id;
+  }
+
+  private void writeDuration(File dir, int id, long duration) throws IOException {
+    long position = (long) rows * Long.BYTES;
+    try (FileChannel channel = openForWrite(dir, id + COLUMN_SUFFIX)) {
+      long size = channel.size();
+      if (size > position) {
+        channel.truncate(position);
+        size = position;
+      }
+      // rows of builds without this endpoint
+      int padding = (int) ((position - size) / Long.BYTES);
+      ByteBuffer buffer = ByteBuffer.allocate((padding + 1) * Long.BYTES);
+      for (int i = 0; i < padding; i++) {
+        buffer.putLong(MISSING);
+      }
+      buffer.putLong(duration);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, size + buffer.position());
+      }
+    }
+  }
+
+  private static FileChannel openForWrite(File dir, String fileName) throws IOException {
+    return FileChannel.open(new File(dir, fileName).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+  }
+
+  // build number to duration of the latest builds that have the endpoint, oldest first
+  synchronized Map<Integer, Long> query(String endpoint, int limit) throws IOException {
+    Map<Integer, Long> result = new TreeMap<>();
+    Integer id = endpointIds.get(endpoint);
+    if (id == null || rows == 0) {
+      return result;
+    }
+    File dir = getDir();
+    File columnFile = new File(dir, id + COLUMN_SUFFIX);
+    if (!columnFile.exists()) {
+      return result;
+    }
+
+    int from = Math.max(0, rows - Math.min(limit, MAX_LIMIT));
+    try (FileChannel builds = FileChannel.open(new File(dir, BUILDS_FILE).toPath(), StandardOpenOption.READ);
+         FileChannel column = FileChannel.open(columnFile.toPath(), StandardOpenOption.READ)) {
+      int to = (int) Math.min(rows, column.size() / Long.BYTES);
+      if (to <= from) {
+        return result;
+      }
+      IntBuffer numbers = builds.map(FileChannel.MapMode.READ_ONLY, (long) from * Integer.BYTES, (long) (to - from) * Integer.BYTES).asIntBuffer();
+      LongBuffer durations = column.map(FileChannel.MapMode.READ_ONLY, (long) from * Long.BYTES, (long) (to - from) * Long.BYTES).asLongBuffer();
+      for (int i = 0; i < to - from; i++) {
+        long duration = durations.get(i);
+        if (duration != MISSING) {
+          result.put(numbers.get(i), duration);
+        }
+        else {
+          // a later row of the same build without the endpoint
+          result.remove(numbers.get(i));
+        }
+      }
+    }
+    return result;
+  }
+
+  synchronized List<String> getEndpoints() {
+    return new ArrayList<>(endpoints);
+  }
+}
@@ -18,9 +18,9 @@ import lombok.Value;
 class FailureReport {
   private final List<String> lines;
 
-  static FailureReport generate(IssuesResponse qRData, Fields fields) {
+  static FailureReport generate(IssuesResponse qRData, IssuesStats stats, Fields fields) {
     List<String> lines = new ArrayList<>();
-    if (qRData.issuesCount.DURATION > fields.slowRequestsAllowed  || qRData.issuesCount.IO > fields.excessiveIoAllowed || qRData.issuesCount.EXCEPTIONS > fields.exceptionsAllowed) {
+    if (stats.isRegression(fields)) {
       lines.add(String.format("Build failed because QRebel found regressions in %s", qRData.appName));
     }
     else {
@@ -35,12 +35,12 @@ class FailureReport {
       addBuildLines(lines, qRData.baselineBuild, qRData.baselineVersion);
     }
 
-    lines.add(String.format("Slow Requests: %d", qRData.issuesCount.DURATION));
-    lines.add(String.format("Excessive IO: %d", qRData.issuesCount.IO));
-    lines.add(String.format("Exceptions: %d", qRData.issuesCount.EXCEPTIONS));
+    lines.add(String.format("Slow Requests: %d", stats.getSlowRequests()));
+    lines.add(String.format("Excessive IO: %d", stats.getExcessiveIo()));
+    lines.add(String.format("Exceptions: %d", stats.getExceptions()));
 
     if (fields.slaGlobalLimit > 0) {
-      lines.add(String.format("SLA global limit (ms): %d ms | slowest endpoint time(ms): %d ms", fields.slaGlobalLimit, new IssuesStats(qRData).getSlowestDuration()));
+      lines.add(String.format("SLA global limit (ms): %d ms | slowest endpoint time(ms): %d ms", fields.slaGlobalLimit, stats.getSlowestDuration()));
     }
     lines.add(String.format("For full report check your <a href= %s >dashboard</a>.", qRData.appViewUrl));
 
@@ -7,7 +7,9 @@
  */
 package org.zeroturnaround.jenkins.plugin.qrebel;
 
+import hudson.model.Result;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.experimental.Wither;
 
 /**
@@ -15,6 +17,7 @@ import lombok.experimental.Wither;
  */
 @Builder
 @Wither
+@EqualsAndHashCode
 class Fields {
   final String appName;
   final String targetBuild;
@@ -29,4 +32,12 @@ class Fields {
   final long exceptionsAllowed;
   final long slaGlobalLimit;
   final String issueTypes;
+  final int samples;
+  final long sampleInterval;
+  final int quorum;
+  final long pushTimeout;
+  final TrafficMode trafficMode;
+  final int replayBuild;
+  final long gateTimeout;
+  final Result timeoutResult;
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.verb.GET;
+
+import com.google.gson.Gson;
+
+import hudson.Extension;
+import hudson.model.Action;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Items;
+import hudson.model.Job;
+import hudson.model.TopLevelItem;
+import hudson.model.TransientViewActionFactory;
+import hudson.model.View;
+import lombok.Value;
+
+/**
+ * Latest gate result of every job in a view, including jobs nested in folders, read from {@link GateIndex}
+ * so that opening the dashboard neither loads builds nor queries QRebel. Folders get it through their views.
+ */
+public class GateDashboardAction implements Action {
+
+  static final String URL_NAME = "qrebel-dashboard";
+
+  private static final Gson GSON = new Gson();
+
+  private final View view;
+
+  GateDashboardAction(View view) {
+    this.view = view;
+  }
+
+  @Value
+  public static class Row {
+    String job;
+    String url;
+    GateSummary summary;
+
+    public boolean isFailed() {
+      return summary.getVerdict() == GateVerdict.FAILED;
+    }
+
+    // accessors for the view, GateSummary itself is not public
+    public int getNumber() {
+      return summary.getNumber();
+    }
+
+    public String getVerdict() {
+      return summary.getVerdict().name();
+    }
+
+    public long getSlowRequests() {
+      return summary.getSlowRequests();
+    }
+
+    public long getExcessiveIo() {
+      return summary.getExcessiveIo();
+    }
+
+    public long getExceptions() {
+      return summary.getExceptions();
+    }
+
+    public long getSlowestDuration() {
+      return summary.getSlowestDuration();
+    }
+
+    public String getTarget() {
+      return StringUtils.defaultString(summary.getTargetBuild()) + " " + StringUtils.defaultString(summary.getTargetVersion());
+    }
+
+    public Date getFinished() {
+      return new Date(summary.getTimestamp());
+    }
+  }
+
+  // hidden in views without gated jobs, decided from the index without walking into folders
+  @Override
+  public String getIconFileName() {
+    for (TopLevelItem item : view.getItems()) {
+      if (GateIndex.contains(item)) {
+        return "graph.png";
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "QRebel Dashboard";
+  }
+
+  @Override
+  public String getUrlName() {
+    return URL_NAME;
+  }
+
+  public View getView() {
+    return view;
+  }
+
+  // failed gates first, then by job name
+  public List<Row> getRows() {
+    List<Row> rows = new ArrayList<>();
+    for (Job<?, ?> job : getJobs()) {
+      GateSummary summary = GateIndex.getLatest(job);
+      if (summary != null) {
+        rows.add(new Row(job.getFullDisplayName(), job.getUrl(), summary));
+      }
+    }
+    rows.sort(Comparator.comparing((Row row) -> !row.isFailed()).thenComparing(Row::getJob));
+    return rows;
+  }
+
+  // counted from the rows the page already computed
+  public int getFailedCount(List<Row> rows) {
+    return (int) rows.stream().filter(Row::isFailed).count();
+  }
+
+  @GET
+  public void doJson(StaplerRequest req, StaplerResponse rsp) throws IOException {
+    view.checkPermission(View.READ);
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("view", view.getViewName());
+    body.put("jobs", getRows());
+    rsp.setContentType("application/json;charset=UTF-8");
+    GSON.toJson(body, rsp.getWriter());
+  }
+
+  // Items.getAllItems only returns what the current user may read, folders without gated jobs are skipped
+  private Set<Job<?, ?>> getJobs() {
+    Set<Job<?, ?>> jobs = new LinkedHashSet<>();
+    for (TopLevelItem item : view.getItems()) {
+      if (item instanceof Job) {
+        if (item.hasPermission(Item.READ)) {
+          jobs.add((Job<?, ?>) item);
+        }
+      }
+      else if (item instanceof ItemGroup && GateIndex.contains(item)) {
+        for (Job job : Items.getAllItems((ItemGroup<?>) item, Job.class)) {
+          jobs.add(job);
+        }
+      }
+    }
+    return jobs;
+  }
+
+  @Extension
+  public static final class Factory extends TransientViewActionFactory {
+
+    @Override
+    public List<Action> createFor(View view) {
+      return Collections.singletonList(new GateDashboardAction(view));
+    }
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import hudson.XmlFile;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+
+/**
+ * Per-job index of gate results, persisted next to the job config so that
+ * the history can be served without loading the builds themselves.
+ * Every result is appended as a JSON line to a journal, which is folded into the XML snapshot
+ * every {@link #COMPACT_INTERVAL} results, so a gated build does not rewrite the whole history.
+ */
+class GateHistory {
+
+  static final String FILE_NAME = "qrebel-history.xml";
+  // the latest entry only, read at startup instead of the whole history
+  static final String LATEST_FILE_NAME = "qrebel-latest.xml";
+  // results appended since the snapshot, replayed over it when loaded
+  static final String JOURNAL_FILE_NAME = "qrebel-history.log";
+  static final int MAX_ENTRIES = 10000;
+  static final int COMPACT_INTERVAL = 500;
+
+  private static final Gson GSON = new Gson();
+
+  private static final Logger LOGGER = Logger.getLogger(GateHistory.class.getName());
+  private static final Map<Job<?, ?>, GateHistory> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private List<GateSummary> entries = new ArrayList<>();
+  private long revision;
+  private transient int journalSize;
+
+  // the cache value must not keep its key reachable
+  private transient WeakReference<Job<?, ?>> owner;
+
+  static GateHistory forJob(Job<?, ?> job) {
+    return CACHE.computeIfAbsent(job, GateHistory::load);
+  }
+
+  private static GateHistory load(Job<?, ?> job) {
+    GateHistory history = new GateHistory();
+    XmlFile file = getFile(job);
+    if (file.exists()) {
+      try {
+        file.unmarshal(history);
+      }
+      catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to load QRebel gate history from " + file, e);
+      }
+    }
+    history.owner = new WeakReference<>(job);
+    history.replayJournal(getJournalFile(job));
+    return history;
+  }
+
+  private void replayJournal(File journal) {
+    if (!journal.exists()) {
+      return;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(journal.toPath(), StandardCharsets.UTF_8)) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        journalSize++;
+        try {
+          GateSummary summary = GSON.fromJson(line, GateSummary.class);
+          if (summary != null) {
+            insert(summary);
+          }
+        }
+        catch (JsonParseException e) {
+          // a line cut short by a crash, the result of that build is lost
+          LOGGER.log(Level.WARNING, "Skipped a corrupted QRebel gate result in " + journal, e);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to load QRebel gate history from " + journal, e);
+    }
+  }
+
+  private static XmlFile getFile(Job<?, ?> job) {
+    return new XmlFile(Jenkins.XSTREAM2, new File(job.getRootDir(), FILE_NAME));
+  }
+
+  // whether the job has a stored history, without loading it
+  static boolean exists(Job<?, ?> job) {
+    return getFile(job).exists() || getJournalFile(job).exists();
+  }
+
+  private static File getJournalFile(Job<?, ?> job) {
+    return new File(job.getRootDir(), JOURNAL_FILE_NAME);
+  }
+
+  private static XmlFile getLatestFile(Job<?, ?> job) {
+    return new XmlFile(Jenkins.XSTREAM2, new File(job.getRootDir(), LATEST_FILE_NAME));
+  }
+
+  // the latest stored result without loading the history, null when the job has none
+  static GateSummary readLatest(Job<?, ?> job) {
+    XmlFile latestFile = getLatestFile(job);
+    try {
+      if (latestFile.exists()) {
+        return (GateSummary) latestFile.read();
+      }
+      if (!exists(job)) {
+        return null;
+      }
+      // written before the latest entry was kept apart, loaded once to split it out
+      GateSummary latest = forJob(job).getLatest();
+      if (latest != null) {
+        latestFile.write(latest);
+      }
+      return latest;
+    }
+    catch (IOException | ClassCastException e) {
+      LOGGER.log(Level.WARNING, "Failed to load the latest QRebel gate result from " + latestFile, e);
+      return null;
+    }
+  }
+
+  // record the result of a build, replacing an older result of the same build if any
+  synchronized void append(GateSummary summary) throws IOException {
+    insert(summary);
+    save(summary);
+  }
+
+  private void insert(GateSummary summary) {
+    if (!entries.isEmpty() && entries.get(entries.size() - 1).getNumber() >= summary.getNumber()) {
+      entries.removeIf(entry -> entry.getNumber() == summary.getNumber());
+      entries.add(summary);
+      entries.sort(Comparator.comparingInt(GateSummary::getNumber));
+    }
+    else {
+      entries.add(summary);
+    }
+    if (entries.size() > MAX_ENTRIES) {
+      entries.subList(0, entries.size() - MAX_ENTRIES).clear();
+    }
+    revision++;
+  }
+
+  private void save(GateSummary summary) throws IOException {
+    Job<?, ?> job = owner.get();
+    if (job == null) {
+      return;
+    }
+    File journal = getJournalFile(job);
+    if (journalSize + 1 >= COMPACT_INTERVAL) {
+      // replaying the journal again after a crash in between only replaces the same results
+      getFile(job).write(this);
+      Files.deleteIfExists(journal.toPath());
+      journalSize = 0;
+    }
+    else {
+      Files.write(journal.toPath(), Collections.singletonList(GSON.toJson(summary)), StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      journalSize++;
+    }
+    getLatestFile(job).write(getLatest());
+    GateIndex.update(job, getLatest());
+  }
+
+  // builds newer than since (oldest first) or the latest builds when since is not given
+  synchronized List<GateSummary> query(Integer since, int limit) {
+    if (since == null) {
+      return new ArrayList<>(entries.subList(Math.max(0, entries.size() - limit), entries.size()));
+    }
+    List<GateSummary> result = new ArrayList<>();
+    for (GateSummary entry : entries) {
+      if (result.size() >= limit) {
+        break;
+      }
+      if (entry.getNumber() > since) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  // the stored result of a build, entries are sorted by build number
+  synchronized GateSummary get(int number) {
+    int low = 0;
+    int high = entries.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midNumber = entries.get(mid).getNumber();
+      if (midNumber < number) {
+        low = mid + 1;
+      }
+      else if (midNumber > number) {
+        high = mid - 1;
+      }
+      else {
+        return entries.get(mid);
+      }
+    }
+    return null;
+  }
+
+  synchronized GateSummary getLatest() {
+    return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+  }
+
+  // changes whenever the stored entries change, the representation tells apart formats and queries of the same entries
+  synchronized String getETag(String representation) {
+    GateSummary latest = getLatest();
+    return "\"" + revision + "-" + (latest == null ? 0 : latest.getNumber()) + "-" + representation + "\"";
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.verb.GET;
+import org.kohsuke.stapler.verb.POST;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import feign.FeignException;
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Item;
+import hudson.model.Job;
+import jenkins.model.TransientActionFactory;
+
+/**
+ * Serves the gate history of a job as JSON or CSV from the persisted {@link GateHistory},
+ * e.g. <code>job/foo/qrebel-history/json?since=41&amp;limit=20</code>
+ * Responses carry an ETag so that polling clients get 304 while nothing changed.
+ */
+public class GateHistoryAction implements Action {
+
+  static final String URL_NAME = "qrebel-history";
+  static final int DEFAULT_LIMIT = 100;
+  static final int MAX_LIMIT = 1000;
+  static final int DEFAULT_DURATIONS_LIMIT = 1000;
+
+  private static final Gson GSON = new GsonBuilder().create();
+
+  private final Job<?, ?> job;
+
+  GateHistoryAction(Job<?, ?> job) {
+    this.job = job;
+  }
+
+  @Override
+  public String getIconFileName() {
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "QRebel Gate History";
+  }
+
+  @Override
+  public String getUrlName() {
+    return URL_NAME;
+  }
+
+  @GET
+  public void doJson(StaplerRequest req, StaplerResponse rsp) throws IOException {
+    List<GateSummary> entries = query("json", req, rsp);
+    if (entries == null) {
+      return;
+    }
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("job", job.getFullName());
+    body.put("builds", entries);
+    rsp.setContentType("application/json;charset=UTF-8");
+    GSON.toJson(body, rsp.getWriter());
+  }
+
+  @GET
+  public void doCsv(StaplerRequest req, StaplerResponse rsp) throws IOException {
+    List<GateSummary> entries = query("csv", req, rsp);
+    if (entries == null) {
+      return;
+    }
+    rsp.setContentType("text/csv;charset=UTF-8");
+    PrintWriter writer = rsp.getWriter();
+    writer.println("build,timestamp,verdict,slowRequests,excessiveIo,exceptions,slowestDuration,targetBuild,targetVersion,baselineBuild,baselineVersion");
+    for (GateSummary entry : entries) {
+      writer.println(StringUtils.join(new Object[]{
+          entry.getNumber(),
+          entry.getTimestamp(),
+          entry.getVerdict(),
+          entry.getSlowRequests(),
+          entry.getExcessiveIo(),
+          entry.getExceptions(),
+          entry.getSlowestDuration(),
+          csvValue(entry.getTargetBuild()),
+          csvValue(entry.getTargetVersion()),
+          csvValue(entry.getBaselineBuild()),
+          csvValue(entry.getBaselineVersion())}, ','));
+    }
+  }
+
+  // slowest percentile duration of one endpoint across the latest builds,
+  // e.g. <code>durations?endpoint=GET%20/api/owners&amp;limit=1000</code>
+  @GET
+  public void doDurations(StaplerRequest req, StaplerResponse rsp) throws IOException {
+    job.checkPermission(Item.READ);
+    String endpoint = req.getParameter("endpoint");
+    if (StringUtils.isBlank(endpoint)) {
+      rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, "endpoint parameter is required");
+      return;
+    }
+    Integer limit = parseInt(req.getParameter("limit"));
+    if (limit == null || limit <= 0) {
+      limit = DEFAULT_DURATIONS_LIMIT;
+    }
+
+    List<Map<String, Object>> builds = new ArrayList<>();
+    for (Map.Entry<Integer, Long> duration : DurationStore.forJob(job).query(endpoint, limit).entrySet()) {
+      Map<String, Object> build = new LinkedHashMap<>();
+      build.put("number", duration.getKey());
+      build.put("slowestPercentile", duration.getValue());
+      builds.add(build);
+    }
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("job", job.getFullName());
+    body.put("endpoint", endpoint);
+    body.put("builds", builds);
+    rsp.setContentType("application/json;charset=UTF-8");
+    GSON.toJson(body, rsp.getWriter());
+  }
+
+  @GET
+  public void doEndpoints(StaplerRequest req, StaplerResponse rsp) throws IOException {
+    job.checkPermission(Item.READ);
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("job", job.getFullName());
+    body.put("endpoints", DurationStore.forJob(job).getEndpoints());
+    rsp.setContentType("application/json;charset=UTF-8");
+    GSON.toJson(body, rsp.getWriter());
+  }
+
+  // starts bisecting the builds between good and bad (oldest and latest completed build by default)
+  // with the current thresholds in the background, the result is polled from regressionResult
+  @POST
+  public void doRegression(StaplerRequest req, StaplerResponse rsp) throws IOException {
+    job.checkPermission(Item.CONFIGURE);
+    QRebelPublisher publisher = getPublisher(job);
+    if (publisher == null) {
+      rsp.sendError(HttpServletResponse.SC_NOT_FOUND, "The job has no QRebel Performance Gate");
+      return;
+    }
+    RegressionSearch.start((AbstractProject<?, ?>) job, publisher, parseInt(req.getParameter("good")), parseInt(req.getParameter("bad")));
+    rsp.setStatus(HttpServletResponse.SC_ACCEPTED);
+    rsp.setHeader("Location", job.getAbsoluteUrl() + URL_NAME + "/regressionResult");
+    sendStatus(rsp, "running");
+  }
+
+  // 202 while the latest search is running, then its result
+  @GET
+  public void doRegressionResult(StaplerRequest req, StaplerResponse rsp) throws IOException, InterruptedException {
+    job.checkPermission(Item.CONFIGURE);
+    RegressionSearch search = RegressionSearch.get(job);
+    if (search == null) {
+      rsp.sendError(HttpServletResponse.SC_NOT_FOUND, "No regression search was started");
+      return;
+    }
+    if (!search.isDone()) {
+      rsp.setStatus(HttpServletResponse.SC_ACCEPTED);
+      sendStatus(rsp, "running");
+      return;
+    }
+    RegressionLocator.Result result;
+    try {
+      result = search.getResult();
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IllegalArgumentException) {
+        rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, cause.getMessage());
+      }
+      else if (cause instanceof Deadline.DeadlineExceededException) {
+        rsp.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT, cause.getMessage());
+      }
+      else if (cause instanceof FeignException) {
+        rsp.sendError(HttpServletResponse.SC_BAD_GATEWAY, "QRebel query failed: " + cause.getMessage());
+      }
+      else {
+        rsp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Regression search failed: " + cause);
+      }
+      return;
+    }
+    rsp.setContentType("application/json;charset=UTF-8");
+    GSON.toJson(result, rsp.getWriter());
+  }
+
+  private static void sendStatus(StaplerResponse rsp, String status) throws IOException {
+    rsp.setContentType("application/json;charset=UTF-8");
+    GSON.toJson(Collections.singletonMap("status", status), rsp.getWriter());
+  }
+
+  private static QRebelPublisher getPublisher(Job<?, ?> job) {
+    return job instanceof AbstractProject ? ((AbstractProject<?, ?>) job).getPublishersList().get(QRebelPublisher.class) : null;
+  }
+
+  // returns null when the client copy is still valid and 304 has been sent
+  private List<GateSummary> query(String format, StaplerRequest req, StaplerResponse rsp) throws IOException {
+    job.checkPermission(Item.READ);
+    Integer since = parseInt(req.getParameter("since"));
+    Integer limit = parseInt(req.getParameter("limit"));
+    if (limit == null || limit <= 0) {
+      limit = DEFAULT_LIMIT;
+    }
+    limit = Math.min(limit, MAX_LIMIT);
+
+    // the tag covers the normalized query, a copy of another format or query is not valid for this one
+    GateHistory history = GateHistory.forJob(job);
+    String eTag = history.getETag(format + "-" + (since == null ? "latest" : "since" + since) + "-" + limit);
+    rsp.setHeader("ETag", eTag);
+    rsp.setHeader("Cache-Control", "no-cache");
+    if (matches(req.getHeaders("If-None-Match"), eTag)) {
+      rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return null;
+    }
+    return history.query(since, limit);
+  }
+
+  // If-None-Match holds * or a comma separated list of tags, compared weakly so W/ tags of proxies match too
+  static boolean matches(Enumeration<?> ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String opaqueTag = StringUtils.removeStart(eTag, "W/");
+    for (Object header : Collections.list(ifNoneMatch)) {
+      for (String tag : StringUtils.split(String.valueOf(header), ',')) {
+        tag = tag.trim();
+        if ("*".equals(tag) || opaqueTag.equals(StringUtils.removeStart(tag, "W/"))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static Integer parseInt(String value) {
+    try {
+      return StringUtils.isBlank(value) ? null : Integer.valueOf(value.trim());
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static String csvValue(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (StringUtils.containsAny(value, ",\"\r\n")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
+
+  @Extension
+  public static final class Factory extends TransientActionFactory<Job> {
+
+    @Override
+    public Class<Job> type() {
+      return Job.class;
+    }
+
+    @Override
+    public @Nonnull
+    Collection<? extends Action> createFor(@Nonnull Job target) {
+      if (getPublisher(target) != null || GateHistory.exists(target)) {
+        return Collections.singleton(new GateHistoryAction(target));
+      }
+      return Collections.emptySet();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+
+/**
+ * Latest gate result of every job by full name, kept in memory for the dashboards.
+ * Seeded at startup from the latest entry stored next to each {@link GateHistory} and then updated as gates finish.
+ */
+class GateIndex {
+
+  // sorted, so the jobs inside a folder are a range of names
+  private static final ConcurrentNavigableMap<String, GateSummary> LATEST = new ConcurrentSkipListMap<>();
+
+  private GateIndex() {
+  }
+
+  static GateSummary getLatest(Job<?, ?> job) {
+    return LATEST.get(job.getFullName());
+  }
+
+  // whether the item is a gated job or a folder containing one
+  static boolean contains(Item item) {
+    String name = item.getFullName();
+    if (LATEST.containsKey(name)) {
+      return true;
+    }
+    String nested = LATEST.ceilingKey(name + "/");
+    return nested != null && nested.startsWith(name + "/");
+  }
+
+  static void update(Job<?, ?> job, GateSummary summary) {
+    LATEST.merge(job.getFullName(), summary, (current, updated) -> updated.getNumber() >= current.getNumber() ? updated : current);
+  }
+
+  // all jobs whatever the permissions of a viewer, the builds themselves are not loaded
+  static void seed() {
+    // entries of a Jenkins instance started earlier in the same JVM
+    LATEST.clear();
+    try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
+      for (Job<?, ?> job : Jenkins.get().getAllItems(Job.class)) {
+        GateSummary latest = GateHistory.readLatest(job);
+        if (latest != null) {
+          update(job, latest);
+        }
+      }
+    }
+  }
+
+  @Extension
+  public static final class Listener extends ItemListener {
+
+    // before the first view is rendered
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void seedIndex() {
+      seed();
+    }
+
+    @Override
+    public void onDeleted(Item item) {
+      LATEST.keySet().removeIf(name -> name.equals(item.getFullName()) || name.startsWith(item.getFullName() + "/"));
+    }
+
+    @Override
+    public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+      for (String name : LATEST.keySet()) {
+        if (name.equals(oldFullName) || name.startsWith(oldFullName + "/")) {
+          GateSummary summary = LATEST.remove(name);
+          if (summary != null) {
+            LATEST.put(newFullName + name.substring(oldFullName.length()), summary);
+          }
+        }
+      }
+    }
+  }
+}
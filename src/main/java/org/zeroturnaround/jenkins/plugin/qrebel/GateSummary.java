@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+
+import hudson.model.Run;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Gate result of a single build as persisted in the job history
+ */
+@Value
+@Builder
+class GateSummary {
+  private final int number;
+  private final long timestamp;
+  private final GateVerdict verdict;
+  private final long slowRequests;
+  private final long excessiveIo;
+  private final long exceptions;
+  private final long slowestDuration;
+  private final String appName;
+  private final String targetBuild;
+  private final String targetVersion;
+  private final String baselineBuild;
+  private final String baselineVersion;
+  private final ComparisonStrategy comparisonStrategy;
+
+  static GateSummary of(Run<?, ?> run, IssuesResponse qRData, IssuesStats stats, Fields fields, GateVerdict verdict) {
+    return GateSummary.builder()
+        .number(run.getNumber())
+        .timestamp(run.getTimeInMillis())
+        .verdict(verdict)
+        .slowRequests(stats.getSlowRequests())
+        .excessiveIo(stats.getExcessiveIo())
+        .exceptions(stats.getExceptions())
+        .slowestDuration(stats.getSlowestDuration())
+        .appName(qRData.appName)
+        .targetBuild(qRData.targetBuild)
+        .targetVersion(qRData.targetVersion)
+        .baselineBuild(fields.comparisonStrategy == ComparisonStrategy.THRESHOLD ? null : qRData.baselineBuild)
+        .baselineVersion(fields.comparisonStrategy == ComparisonStrategy.THRESHOLD ? null : qRData.baselineVersion)
+        .comparisonStrategy(fields.comparisonStrategy)
+        .build();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import javax.annotation.Nonnull;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Transport;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import lombok.Getter;
+
+/**
+ * HTTP transport used for a QRebel API URL
+ */
+@Getter
+public class HubTransport extends AbstractDescribableImpl<HubTransport> {
+
+  private final String apiUrl;
+  private final String transport;
+
+  @DataBoundConstructor
+  public HubTransport(String apiUrl, String transport) {
+    this.apiUrl = StringUtils.trimToEmpty(apiUrl);
+    this.transport = transport;
+  }
+
+  boolean matches(String url) {
+    return StringUtils.removeEnd(apiUrl, "/").equals(StringUtils.removeEnd(StringUtils.trimToEmpty(url), "/"));
+  }
+
+  Transport toTransport() {
+    return StringUtils.isEmpty(transport) ? Transport.URL_CONNECTION : Transport.valueOf(transport);
+  }
+
+  @Extension
+  public static class DescriptorImpl extends Descriptor<HubTransport> {
+
+    @Override
+    public @Nonnull
+    String getDisplayName() {
+      return "QRebel API URL transport";
+    }
+
+    public ListBoxModel doFillTransportItems() {
+      ListBoxModel items = new ListBoxModel();
+      for (Transport element : Transport.values()) {
+        items.add(element.name());
+      }
+      return items;
+    }
+
+    // HTTP/2 is negotiated over TLS only, a cleartext URL silently falls back to HTTP/1.1
+    public FormValidation doCheckTransport(@QueryParameter String apiUrl, @QueryParameter String value) {
+      if (Transport.HTTP2.name().equals(value) && StringUtils.startsWithIgnoreCase(StringUtils.trimToEmpty(apiUrl), "http://")) {
+        return FormValidation.warning("HTTP/2 is only negotiated over https://, this URL uses HTTP/1.1. Choose H2C for cleartext HTTP/2");
+      }
+      return FormValidation.ok();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Cancellation;
+
+/**
+ * Bulkhead for all QRebel I/O: a bounded pool with a bounded queue, so that a slow QRebel server
+ * cannot take over the build executors or the web threads. Uses virtual threads when the runtime has them.
+ */
+final class IoExecutor {
+
+  static final int THREADS = Integer.getInteger("qrebel.jenkins.ioThreads", 16);
+  static final int QUEUE_CAPACITY = Integer.getInteger("qrebel.jenkins.ioQueueCapacity", 256);
+
+  private static final Logger LOGGER = Logger.getLogger(IoExecutor.class.getName());
+  private static final AtomicLong REJECTED = new AtomicLong();
+  private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+  private IoExecutor() {
+  }
+
+  private static ThreadPoolExecutor createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(QUEUE_CAPACITY), createThreadFactory(), (task, pool) -> {
+          REJECTED.incrementAndGet();
+          throw new RejectedExecutionException("QRebel I/O queue is full");
+        }) {
+
+      @Override
+      protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new CancellableTask<>(callable);
+      }
+
+      @Override
+      protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new CancellableTask<>(Executors.callable(runnable, value));
+      }
+    };
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  // an interrupt does not unblock a socket read, so cancel(true) also closes the connection of the task
+  private static final class CancellableTask<T> extends FutureTask<T> {
+
+    private final Cancellation cancellation = new Cancellation();
+
+    CancellableTask(Callable<T> callable) {
+      super(callable);
+    }
+
+    @Override
+    public void run() {
+      cancellation.bind();
+      try {
+        super.run();
+      }
+      finally {
+        cancellation.unbind();
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled && mayInterruptIfRunning) {
+        cancellation.cancel();
+      }
+      return cancelled;
+    }
+  }
+
+  // Thread.ofVirtual() is looked up reflectively as the plugin targets Java 8
+  private static ThreadFactory createThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "QRebel I/O #", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      LOGGER.log(Level.FINE, "Virtual threads not available, using platform threads", e);
+    }
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+    return task -> {
+      Thread thread = defaultFactory.newThread(task);
+      thread.setName("QRebel I/O #" + count.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  static ExecutorService get() {
+    return EXECUTOR;
+  }
+
+  static <T> Future<T> submit(Callable<T> task) {
+    return EXECUTOR.submit(task);
+  }
+
+  // run the task in the pool and wait for it, the task is cancelled if the caller is interrupted
+  static <T> T call(Callable<T> task) throws InterruptedException {
+    Future<T> future = submit(task);
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    }
+    catch (ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  // as call(task), but the task is also cancelled when it takes longer than timeoutMillis
+  static <T> T call(Callable<T> task, long timeoutMillis) throws InterruptedException, TimeoutException {
+    Future<T> future = submit(task);
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException | TimeoutException e) {
+      future.cancel(true);
+      throw e;
+    }
+    catch (ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  static RuntimeException unwrap(ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IllegalStateException(cause);
+  }
+
+  static int getActiveCount() {
+    return EXECUTOR.getActiveCount();
+  }
+
+  static int getQueueDepth() {
+    return EXECUTOR.getQueue().size();
+  }
+
+  static int getPoolSize() {
+    return EXECUTOR.getPoolSize();
+  }
+
+  static long getCompletedTaskCount() {
+    return EXECUTOR.getCompletedTaskCount();
+  }
+
+  static long getRejectedCount() {
+    return REJECTED.get();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.Arrays;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesRequest;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+
+/**
+ * Aggregates repeated issue queries of the same target build into a single verdict.
+ * Each response is merged into an {@link IssuesView} as soon as it arrives, so that later samples ask only
+ * for the entry points changed since an earlier one, and reduced to its {@link IssuesStats}.
+ * Only the first response, a full one, is kept for reporting.
+ */
+class IssuesSamples {
+
+  private final Fields fields;
+  private final long[] slowRequests;
+  private final long[] excessiveIo;
+  private final long[] exceptions;
+  private final long[] slowestDurations;
+  private int count;
+  private int exceeded;
+  private IssuesResponse first;
+  private final IssuesView view = new IssuesView();
+
+  IssuesSamples(Fields fields, int capacity) {
+    this.fields = fields;
+    this.slowRequests = new long[capacity];
+    this.excessiveIo = new long[capacity];
+    this.exceptions = new long[capacity];
+    this.slowestDurations = new long[capacity];
+  }
+
+  // the request of the next sample, relative to the samples received so far
+  synchronized IssuesRequest nextRequest(IssuesRequest request) {
+    return view.nextRequest(request);
+  }
+
+  synchronized void add(IssuesResponse qRData) {
+    IssuesStats stats = view.merge(qRData);
+    slowRequests[count] = stats.getSlowRequests();
+    excessiveIo[count] = stats.getExcessiveIo();
+    exceptions[count] = stats.getExceptions();
+    slowestDurations[count] = stats.getSlowestDuration();
+    count++;
+    if (stats.isGateExceeded(fields)) {
+      exceeded++;
+    }
+    if (first == null) {
+      first = qRData;
+    }
+  }
+
+  synchronized int size() {
+    return count;
+  }
+
+  synchronized int getExceeded() {
+    return exceeded;
+  }
+
+  // response used for names and links in the report
+  synchronized IssuesResponse getFirst() {
+    return first;
+  }
+
+  // per-metric median of the samples received so far
+  synchronized IssuesStats getMedian() {
+    return new IssuesStats(median(slowRequests), median(excessiveIo), median(exceptions), median(slowestDurations));
+  }
+
+  // with a quorum the gate fails when at least that many samples exceed it, otherwise the median decides
+  synchronized boolean isGateExceeded(int quorum) {
+    if (quorum > 0) {
+      return exceeded >= Math.min(quorum, count);
+    }
+    return getMedian().isGateExceeded(fields);
+  }
+
+  // the lower median, so that with an even count a single noisy sample cannot decide
+  private long median(long[] values) {
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+    return sorted[(count - 1) / 2];
+  }
+}
@@ -10,23 +10,42 @@ package org.zeroturnaround.jenkins.plugin.qrebel;
 import java.util.stream.LongStream;
 import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
 
+/**
+ * The numbers the Performance Gate is evaluated on, reduced from a single response or from several samples
+ */
 @Value
+@AllArgsConstructor
 class IssuesStats {
 
-  private final IssuesResponse qRData;
+  private final long slowRequests;
+  private final long excessiveIo;
+  private final long exceptions;
+  private final long slowestDuration;
+
+  IssuesStats(IssuesResponse qRData) {
+    this(qRData.issuesCount.DURATION, qRData.issuesCount.IO, qRData.issuesCount.EXCEPTIONS, getDurationsAsStream(qRData).max().orElse(0L));
+  }
 
   // check if found issues are too slow
   boolean isSlaGlobalLimitExceeded(long threshold) {
-    return threshold > 0L && threshold <= getSlowestDuration();
+    return threshold > 0L && threshold <= slowestDuration;
+  }
+
+  // check if the issue counts exceed the allowed ones
+  boolean isRegression(Fields fields) {
+    return slowRequests > fields.slowRequestsAllowed
+        || excessiveIo > fields.excessiveIoAllowed
+        || exceptions > fields.exceptionsAllowed;
   }
 
-  long getSlowestDuration() {
-    return getDurationsAsStream().max().orElse(0L);
+  boolean isGateExceeded(Fields fields) {
+    return isRegression(fields) || isSlaGlobalLimitExceeded(fields.slaGlobalLimit);
   }
 
-  private LongStream getDurationsAsStream() {
+  private static LongStream getDurationsAsStream(IssuesResponse qRData) {
     return qRData.entryPoints
         .stream()
         .filter(entryPoint -> entryPoint.duration != null && entryPoint.duration.slowestPercentile != null)
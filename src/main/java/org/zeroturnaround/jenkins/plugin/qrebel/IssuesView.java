@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.EntryPoint;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesCount;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesRequest;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+
+/**
+ * Local merged view of the issues of one target build polled repeatedly. Once the server returned a cursor,
+ * the next requests ask only for the entry points changed since then. Servers without cursors send
+ * full responses, which are diffed against the view, unless truncated: these lack entry points that still exist.
+ * Either way only the changed entry points touch the durations, so the stats are not recomputed
+ * from scratch on every poll.
+ */
+class IssuesView {
+
+  // slowest duration by entry point name, with the same durations counted in a sorted multiset
+  private final Map<String, Long> durations = new HashMap<>();
+  private final TreeMap<Long, Integer> sortedDurations = new TreeMap<>();
+  // unnamed entry points cannot be matched between polls, only their slowest duration is kept
+  private long slowestUnnamed;
+  private IssuesCount issuesCount = new IssuesCount(0L, 0L, 0L);
+  private String cursor;
+
+  IssuesRequest nextRequest(IssuesRequest request) {
+    return request.withSince(cursor);
+  }
+
+  IssuesStats merge(IssuesResponse response) {
+    // a truncated response lacks entry points that still exist, like a delta
+    boolean delta = cursor != null && response.cursor != null || response.truncated;
+    if (response.entryPoints != null) {
+      Set<String> seen = new HashSet<>();
+      long unnamed = 0L;
+      for (EntryPoint entryPoint : response.entryPoints) {
+        if (entryPoint == null) {
+          continue;
+        }
+        Long duration = entryPoint.duration == null ? null : entryPoint.duration.slowestPercentile;
+        if (entryPoint.name == null) {
+          unnamed = duration == null ? unnamed : Math.max(unnamed, duration);
+        }
+        else {
+          seen.add(entryPoint.name);
+          put(entryPoint.name, duration);
+        }
+      }
+      // a delta cannot tell which unnamed entry points changed, so their slowest duration only grows until the next full response
+      slowestUnnamed = delta ? Math.max(slowestUnnamed, unnamed) : unnamed;
+      if (!delta) {
+        for (String name : new HashSet<>(durations.keySet())) {
+          if (!seen.contains(name)) {
+            put(name, null);
+          }
+        }
+      }
+    }
+    if (response.issuesCount != null) {
+      issuesCount = response.issuesCount;
+    }
+    cursor = response.cursor;
+    return getStats();
+  }
+
+  IssuesStats getStats() {
+    long slowest = Math.max(slowestUnnamed, sortedDurations.isEmpty() ? 0L : sortedDurations.lastKey());
+    return new IssuesStats(issuesCount.DURATION, issuesCount.IO, issuesCount.EXCEPTIONS, slowest);
+  }
+
+  private void put(String name, Long duration) {
+    Long previous = duration == null ? durations.remove(name) : durations.put(name, duration);
+    if (duration != null && duration.equals(previous)) {
+      return;
+    }
+    if (previous != null) {
+      sortedDurations.computeIfPresent(previous, (key, count) -> count == 1 ? null : count - 1);
+    }
+    if (duration != null) {
+      sortedDurations.merge(duration, 1, Integer::sum);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.matrix.MatrixAggregatable;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixRun;
+import hudson.model.BuildListener;
+import hudson.model.Run;
+
+/**
+ * Adds the {@link MatrixGateAggregator} to matrix builds of jobs with a QRebel Performance Gate.
+ * Only loaded when matrix-project is installed, so the publisher does not depend on it.
+ */
+@Extension(optional = true)
+public class MatrixGateAggregatable implements MatrixAggregatable {
+
+  @Override
+  public MatrixAggregator createAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+    if (build.getParent().getPublishersList().get(QRebelPublisher.class) == null) {
+      return null;
+    }
+    return new MatrixGateAggregator(build, launcher, listener);
+  }
+
+  static MatrixGateBatch getBatch(Run<?, ?> run) {
+    return run instanceof MatrixRun ? MatrixGateBatch.get(((MatrixRun) run).getParentBuild()) : null;
+  }
+
+  static String getCombination(Run<?, ?> run) {
+    return ((MatrixRun) run).getParent().getCombination().toString();
+  }
+}
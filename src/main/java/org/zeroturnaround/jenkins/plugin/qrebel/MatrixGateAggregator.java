@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+
+import hudson.Launcher;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+
+/**
+ * Rolls the gate results of all configurations up into one report on the parent build
+ */
+class MatrixGateAggregator extends MatrixAggregator {
+
+  MatrixGateAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+    super(build, launcher, listener);
+  }
+
+  @Override
+  public boolean startBuild() {
+    MatrixGateBatch.start(build);
+    return true;
+  }
+
+  @Override
+  public boolean endBuild() throws IOException {
+    MatrixGateBatch batch = MatrixGateBatch.finish(build);
+    if (batch == null || batch.getResults().isEmpty()) {
+      return true;
+    }
+
+    Map<String, GateSummary> results = batch.getResults();
+    List<String> lines = new ArrayList<>();
+    long failed = results.values().stream().filter(summary -> summary.getVerdict() == GateVerdict.FAILED).count();
+    lines.add(String.format("QRebel Performance Gate failed in %d of %d configurations", failed, results.size()));
+    for (Map.Entry<String, GateSummary> entry : results.entrySet()) {
+      GateSummary summary = entry.getValue();
+      lines.add(String.format(" %s: %s | Slow Requests: %d | Excessive IO: %d | Exceptions: %d | slowest endpoint time(ms): %d",
+          entry.getKey(), summary.getVerdict(), summary.getSlowRequests(), summary.getExcessiveIo(), summary.getExceptions(), summary.getSlowestDuration()));
+    }
+
+    listener.getLogger().println(StringUtils.join(lines, "\n"));
+    if (failed > 0) {
+      QRebelPublisher.appendDescription(build, StringUtils.join(lines, "<br/>\n"));
+      build.setResult(Result.FAILURE);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import hudson.Extension;
+import hudson.PluginWrapper;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import jenkins.model.Jenkins;
+
+/**
+ * Gate evaluations of all configurations of a matrix build.
+ * QRebel has no batch endpoint, so configurations resolving to identical fields share one query
+ * and the remaining queries are fanned out with bounded concurrency. Results are collected for the parent report.
+ * matrix-project is optional, only {@link MatrixGateAggregatable} and {@link MatrixGateAggregator} refer to its classes.
+ */
+class MatrixGateBatch {
+
+  static final int MAX_CONCURRENT_REQUESTS = Integer.getInteger(MatrixGateBatch.class.getName() + ".maxConcurrentRequests", 4);
+  static final String MATRIX_PLUGIN = "matrix-project";
+
+  // by parent build
+  private static final Map<Run<?, ?>, MatrixGateBatch> BATCHES = new ConcurrentHashMap<>();
+
+  private final Semaphore permits = new Semaphore(MAX_CONCURRENT_REQUESTS);
+  private final ConcurrentMap<Fields, CompletableFuture<IssuesSamples>> queries = new ConcurrentHashMap<>();
+  private final Map<String, GateSummary> results = new TreeMap<>();
+
+  interface Query {
+    IssuesSamples get() throws InterruptedException;
+  }
+
+  static void start(Run<?, ?> build) {
+    BATCHES.put(build, new MatrixGateBatch());
+  }
+
+  static MatrixGateBatch get(Run<?, ?> build) {
+    return BATCHES.get(build);
+  }
+
+  static MatrixGateBatch finish(Run<?, ?> build) {
+    return BATCHES.remove(build);
+  }
+
+  // the batch of the parent build when the run is a matrix configuration
+  static MatrixGateBatch forConfiguration(Run<?, ?> run) {
+    return isMatrixInstalled() ? MatrixGateAggregatable.getBatch(run) : null;
+  }
+
+  private static boolean isMatrixInstalled() {
+    PluginWrapper matrix = Jenkins.get().getPluginManager().getPlugin(MATRIX_PLUGIN);
+    return matrix != null && matrix.isActive();
+  }
+
+  // run the query unless a configuration with identical fields already did
+  // waiting for a permit or for the shared query counts against the deadline
+  IssuesSamples evaluate(Fields fields, Deadline deadline, Query query) throws InterruptedException {
+    CompletableFuture<IssuesSamples> created = new CompletableFuture<>();
+    CompletableFuture<IssuesSamples> existing = queries.putIfAbsent(fields, created);
+    deadline.stage("matrix queue");
+    if (existing != null) {
+      return join(existing, deadline);
+    }
+
+    IssuesSamples samples;
+    try {
+      if (!permits.tryAcquire(deadline.remainingMillis(), TimeUnit.MILLISECONDS)) {
+        throw deadline.exceeded();
+      }
+      try {
+        samples = query.get();
+      }
+      finally {
+        permits.release();
+      }
+    }
+    catch (InterruptedException | RuntimeException e) {
+      // let the other configurations retry on their own
+      queries.remove(fields, created);
+      created.completeExceptionally(e);
+      throw e;
+    }
+    created.complete(samples);
+    return samples;
+  }
+
+  private static IssuesSamples join(CompletableFuture<IssuesSamples> future, Deadline deadline) throws InterruptedException {
+    try {
+      return future.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+    }
+    catch (TimeoutException e) {
+      throw deadline.exceeded();
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  // only called for configurations of the batch, so matrix-project is there
+  void record(Run<?, ?> configuration, GateSummary summary) {
+    String combination = MatrixGateAggregatable.getCombination(configuration);
+    synchronized (this) {
+      results.put(combination, summary);
+    }
+  }
+
+  // results keyed by combination, in a stable order
+  synchronized Map<String, GateSummary> getResults() {
+    return new TreeMap<>(results);
+  }
+
+  // the aggregator removes the batch when the parent build ends, this covers parents aborted before that
+  @Extension
+  public static final class Cleanup extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onCompleted(Run<?, ?> run, TaskListener listener) {
+      BATCHES.remove(run);
+    }
+  }
+}
@@ -17,17 +17,20 @@ import jenkins.model.Jenkins;
  */
 class PluginVersion {
 
-  private static String version = null;
+  // resolving twice is harmless, so no lock is needed
+  private static volatile String version = null;
 
-  static synchronized String get() {
-    if (version == null) {
+  static String get() {
+    String resolved = version;
+    if (resolved == null) {
       Plugin qrebelPlugin = Jenkins.get().getPlugin(QRebelPublisher.PLUGIN_SHORT_NAME);
       if (qrebelPlugin != null) {
         String rawVersion = qrebelPlugin.getWrapper().getVersion();
         // rawVersion can be '1.0-SNAPSHOT (some random id)' - drop the random part
-        version = StringUtils.substringBefore(rawVersion, " ");
+        resolved = StringUtils.substringBefore(rawVersion, " ");
+        version = resolved;
       }
     }
-    return version;
+    return resolved;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.commons.lang.StringUtils;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+
+/**
+ * Analyses pushed by QRebel through the webhook, handed over to the gates waiting for them.
+ * A gate only accepts an analysis of its target computed with its comparison strategy (and its baseline
+ * for {@link ComparisonStrategy#BASELINE}). A version the gate left blank is filled in by QRebel, so it
+ * accepts any version there. An analysis no gate is waiting for is dropped, so it cannot
+ * be taken for the result of a later build.
+ */
+class PushNotifications {
+
+  // the gates waiting for analyses, by what identifies an analysis apart from its versions
+  private static final Map<String, List<Waiter>> PENDING = new ConcurrentHashMap<>();
+
+  // the lists are only changed inside PENDING.compute
+  private static class Waiter {
+    final String targetVersion;
+    final String baselineVersion;
+    final CompletableFuture<IssuesResponse> future = new CompletableFuture<>();
+
+    Waiter(Fields fields) {
+      this.targetVersion = fields.targetVersion;
+      this.baselineVersion = fields.comparisonStrategy == ComparisonStrategy.BASELINE ? fields.baselineVersion : null;
+    }
+
+    boolean accepts(IssuesResponse qRData) {
+      return matches(targetVersion, qRData.targetVersion) && matches(baselineVersion, qRData.baselineVersion);
+    }
+
+    private static boolean matches(String expected, String actual) {
+      return StringUtils.isBlank(expected) || expected.equals(actual);
+    }
+  }
+
+  // wake the gates waiting for this analysis, false when none is
+  static boolean deliver(IssuesResponse qRData, ComparisonStrategy strategy) {
+    List<Waiter> accepted = new ArrayList<>();
+    PENDING.computeIfPresent(key(qRData.appName, qRData.targetBuild, strategy, qRData.baselineBuild), (k, waiters) -> {
+      for (Iterator<Waiter> iterator = waiters.iterator(); iterator.hasNext(); ) {
+        Waiter waiter = iterator.next();
+        if (waiter.accepts(qRData)) {
+          accepted.add(waiter);
+          iterator.remove();
+        }
+      }
+      return waiters.isEmpty() ? null : waiters;
+    });
+    accepted.forEach(waiter -> waiter.future.complete(qRData));
+    return !accepted.isEmpty();
+  }
+
+  // the pushed analysis or null when none arrived in time
+  static IssuesResponse await(Fields fields, long timeout, TimeUnit unit) throws InterruptedException {
+    String key = key(fields.appName, fields.targetBuild, fields.comparisonStrategy, fields.baselineBuild);
+    Waiter waiter = new Waiter(fields);
+    PENDING.compute(key, (k, waiters) -> {
+      List<Waiter> result = waiters == null ? new ArrayList<>() : waiters;
+      result.add(waiter);
+      return result;
+    });
+    try {
+      return waiter.future.get(timeout, unit);
+    }
+    catch (TimeoutException e) {
+      return null;
+    }
+    catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    finally {
+      // a delivered waiter is already gone
+      PENDING.computeIfPresent(key, (k, waiters) -> {
+        waiters.remove(waiter);
+        return waiters.isEmpty() ? null : waiters;
+      });
+    }
+  }
+
+  // the baseline only identifies the analysis when it was chosen explicitly
+  private static String key(String appName, String targetBuild, ComparisonStrategy strategy, String baselineBuild) {
+    return StringUtils.join(new String[]{
+        StringUtils.defaultString(appName),
+        StringUtils.defaultString(targetBuild),
+        String.valueOf(strategy),
+        strategy == ComparisonStrategy.BASELINE ? StringUtils.defaultString(baselineBuild) : ""}, '\n');
+  }
+}
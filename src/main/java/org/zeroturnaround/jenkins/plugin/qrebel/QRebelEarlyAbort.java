@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import javax.annotation.Nonnull;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesRequest;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApi;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApiClient;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Executor;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildWrapperDescriptor;
+import jenkins.model.CauseOfInterruption;
+import jenkins.tasks.SimpleBuildWrapper;
+import jenkins.util.Timer;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Polls the partial QRebel analysis while the build (e.g. a load test) is running and aborts it as soon as
+ * the thresholds of the job's Performance Gate are exceeded, instead of waiting for the post-build verdict.
+ * Issue counts only grow during a run, so one poll over a count limit is enough. The slowest duration
+ * can recover, so exceeding the SLA global limit must be confirmed by consecutive polls.
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@RequiredArgsConstructor(onConstructor = @__({@DataBoundConstructor}))
+public class QRebelEarlyAbort extends SimpleBuildWrapper {
+
+  static final long DEFAULT_POLL_INTERVAL = 60L;
+  static final int DEFAULT_SLA_CONFIRMATIONS = 2;
+
+  // running pollers by build id, the disposer is serializable and cannot hold them
+  private static final Map<String, Poller> POLLERS = new ConcurrentHashMap<>();
+
+  final long pollInterval;
+  final int slaConfirmations;
+
+  @Override
+  public void setUp(Context context, Run<?, ?> build, FilePath workspace, Launcher launcher, TaskListener listener, EnvVars initialEnvironment) {
+    PrintStream logger = listener.getLogger();
+    QRebelPublisher publisher = build.getParent() instanceof AbstractProject
+        ? ((AbstractProject<?, ?>) build.getParent()).getPublishersList().get(QRebelPublisher.class) : null;
+    if (publisher == null || !(build instanceof AbstractBuild)) {
+      logger.println("No QRebel Performance Gate configured, early abort disabled");
+      return;
+    }
+    Fields fields = publisher.resolveFields((AbstractBuild<?, ?>) build);
+    try {
+      QRebelPublisher.validateMinimalMandatoryParameters(fields);
+    }
+    catch (IllegalArgumentException e) {
+      logger.println("QRebel early abort disabled: " + e.getMessage());
+      return;
+    }
+
+    // timeouts and retries of a poll fit in the time it may take, set by the poller before each poll
+    AtomicLong pollEnds = new AtomicLong();
+    QRebelRestApi restApi = QRebelRestApiClient.create(fields.apiUrl, logger, QRebelGlobalConfiguration.get().getClient(fields.apiUrl),
+        QRebelGlobalConfiguration.get().getMaxInMemoryResponseBytes(), build.getRootDir(), () -> pollEnds.get() - System.currentTimeMillis());
+    Poller poller = new Poller(build, fields, restApi, pollEnds, QRebelPublisher.toIssuesRequest(fields), logger,
+        pollInterval > 0 ? pollInterval : DEFAULT_POLL_INTERVAL,
+        slaConfirmations > 0 ? slaConfirmations : DEFAULT_SLA_CONFIRMATIONS);
+    POLLERS.put(build.getExternalizableId(), poller);
+    context.setDisposer(new StopPolling(build.getExternalizableId()));
+    logger.format("Checking the QRebel Performance Gate every %d s during the build%n", poller.pollInterval);
+    poller.schedule();
+  }
+
+  private static final class StopPolling extends Disposer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String buildId;
+
+    StopPolling(String buildId) {
+      this.buildId = buildId;
+    }
+
+    @Override
+    public void tearDown(Run<?, ?> build, FilePath workspace, Launcher launcher, TaskListener listener) {
+      Poller poller = POLLERS.remove(buildId);
+      if (poller != null) {
+        poller.stop();
+      }
+    }
+  }
+
+  // each poll runs on the QRebel I/O pool and schedules the next one when done, so polls never overlap
+  @RequiredArgsConstructor
+  static final class Poller implements Runnable {
+
+    private final Run<?, ?> build;
+    private final Fields fields;
+    private final QRebelRestApi restApi;
+    private final AtomicLong pollEnds;
+    private final IssuesRequest request;
+    private final PrintStream logger;
+    private final long pollInterval;
+    private final int slaConfirmations;
+    // polls after the first one fetch only the changed entry points
+    private final IssuesView view = new IssuesView();
+
+    private int slaExceeded;
+    private volatile boolean stopped;
+    private volatile Future<?> next;
+
+    void schedule() {
+      if (!stopped) {
+        next = Timer.get().schedule(this::submit, pollInterval, TimeUnit.SECONDS);
+      }
+    }
+
+    private void submit() {
+      if (stopped) {
+        return;
+      }
+      try {
+        next = IoExecutor.get().submit(this);
+      }
+      catch (RejectedExecutionException e) {
+        schedule();
+      }
+    }
+
+    void stop() {
+      stopped = true;
+      Future<?> future = next;
+      if (future != null) {
+        future.cancel(true);
+      }
+    }
+
+    // half the interval, so a stalled poll gives up well before the next one is due
+    long getPollTimeoutMillis() {
+      return TimeUnit.SECONDS.toMillis(pollInterval) / 2;
+    }
+
+    @Override
+    public void run() {
+      pollEnds.set(System.currentTimeMillis() + getPollTimeoutMillis());
+      try {
+        String reason = evaluate(view.merge(restApi.getIssues(fields.apiToken, fields.appName, view.nextRequest(request))));
+        if (reason != null) {
+          abort(reason);
+          return;
+        }
+      }
+      catch (RuntimeException e) {
+        if (stopped) {
+          return;
+        }
+        logger.println("QRebel early abort check failed: " + e.getMessage());
+      }
+      schedule();
+    }
+
+    // the reason to abort or null to keep going
+    String evaluate(IssuesStats stats) {
+      if (stats.isRegression(fields)) {
+        return String.format("QRebel Performance Gate exceeded during the build: %d slow requests, %d excessive IO, %d exceptions",
+            stats.getSlowRequests(), stats.getExcessiveIo(), stats.getExceptions());
+      }
+      if (!stats.isSlaGlobalLimitExceeded(fields.slaGlobalLimit)) {
+        slaExceeded = 0;
+        return null;
+      }
+      slaExceeded++;
+      if (slaExceeded < slaConfirmations) {
+        logger.format("Slowest duration %d ms exceeds the SLA global limit of %d ms (%d of %d checks)%n",
+            stats.getSlowestDuration(), fields.slaGlobalLimit, slaExceeded, slaConfirmations);
+        return null;
+      }
+      return String.format("QRebel Performance Gate exceeded during the build: slowest duration %d ms exceeded the SLA global limit of %d ms in %d consecutive checks",
+          stats.getSlowestDuration(), fields.slaGlobalLimit, slaExceeded);
+    }
+
+    private void abort(String reason) {
+      if (stopped) {
+        return;
+      }
+      stopped = true;
+      logger.println(reason);
+      Executor executor = build.getExecutor();
+      if (executor != null) {
+        executor.interrupt(Result.ABORTED, new ThresholdsExceeded(reason));
+      }
+    }
+  }
+
+  static final class ThresholdsExceeded extends CauseOfInterruption {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+
+    ThresholdsExceeded(String reason) {
+      this.reason = reason;
+    }
+
+    @Override
+    public String getShortDescription() {
+      return reason;
+    }
+  }
+
+  @Symbol("qrebelEarlyAbort")
+  @Extension
+  public static final class DescriptorImpl extends BuildWrapperDescriptor {
+
+    @Override
+    public boolean isApplicable(AbstractProject<?, ?> item) {
+      return true;
+    }
+
+    @Override
+    public @Nonnull
+    String getDisplayName() {
+      return "Abort the build as soon as the QRebel Performance Gate is exceeded";
+    }
+  }
+}
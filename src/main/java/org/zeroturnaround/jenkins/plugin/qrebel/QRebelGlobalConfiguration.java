@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Transport;
+
+import feign.Client;
+import hudson.Extension;
+import hudson.util.Secret;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+
+/**
+ * Plugin settings shared by all jobs
+ */
+@Symbol(QRebelPublisher.PLUGIN_SHORT_NAME)
+@Extension
+public class QRebelGlobalConfiguration extends GlobalConfiguration {
+
+  static final long DEFAULT_MAX_IN_MEMORY_RESPONSE_BYTES = 16L * 1024 * 1024;
+
+  private Secret webhookSecret;
+  private List<HubTransport> transports = new ArrayList<>();
+  private long maxInMemoryResponseBytes;
+  // one client per transport shared by all requests, created on first use
+  private transient Map<Transport, Client> clients;
+
+  public QRebelGlobalConfiguration() {
+    load();
+  }
+
+  static QRebelGlobalConfiguration get() {
+    return GlobalConfiguration.all().get(QRebelGlobalConfiguration.class);
+  }
+
+  public Secret getWebhookSecret() {
+    return webhookSecret;
+  }
+
+  @DataBoundSetter
+  public void setWebhookSecret(Secret webhookSecret) {
+    this.webhookSecret = webhookSecret;
+    save();
+  }
+
+  public List<HubTransport> getTransports() {
+    return transports == null ? Collections.emptyList() : Collections.unmodifiableList(transports);
+  }
+
+  @DataBoundSetter
+  public void setTransports(List<HubTransport> transports) {
+    this.transports = transports == null ? new ArrayList<>() : new ArrayList<>(transports);
+    save();
+  }
+
+  // transport configured for the API URL, HttpURLConnection by default
+  Transport getTransport(String apiUrl) {
+    for (HubTransport element : getTransports()) {
+      if (element.matches(apiUrl)) {
+        return element.toTransport();
+      }
+    }
+    return Transport.URL_CONNECTION;
+  }
+
+  // client of the transport configured for the API URL
+  Client getClient(String apiUrl) {
+    return getClient(getTransport(apiUrl));
+  }
+
+  synchronized Client getClient(Transport transport) {
+    if (clients == null) {
+      clients = new EnumMap<>(Transport.class);
+    }
+    return clients.computeIfAbsent(transport, Transport::createClient);
+  }
+
+  // larger issues responses are spilled to disk, 0 means the default
+  public long getMaxInMemoryResponseBytes() {
+    return maxInMemoryResponseBytes > 0 ? maxInMemoryResponseBytes : DEFAULT_MAX_IN_MEMORY_RESPONSE_BYTES;
+  }
+
+  @DataBoundSetter
+  public void setMaxInMemoryResponseBytes(long maxInMemoryResponseBytes) {
+    this.maxInMemoryResponseBytes = maxInMemoryResponseBytes;
+    save();
+  }
+
+  @Override
+  public boolean configure(StaplerRequest req, JSONObject json) {
+    // an empty repeatable list is not submitted at all
+    transports = new ArrayList<>();
+    req.bindJSON(this, json);
+    save();
+    return true;
+  }
+
+  @Override
+  public @Nonnull
+  String getDisplayName() {
+    return "QRebel";
+  }
+}
@@ -8,22 +8,33 @@
 package org.zeroturnaround.jenkins.plugin.qrebel;
 
 import javax.annotation.Nonnull;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.verb.POST;
 import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
 import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesRequest;
 import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApi;
 import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApiClient;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.RecordingClient;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.ReplayClient;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.TrafficArchive;
 
-import feign.FeignException;
+import feign.Client;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -38,11 +49,15 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
 import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
 import hudson.util.VariableResolver;
 import jenkins.tasks.SimpleBuildStep;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.Wither;
 
 /**
@@ -53,6 +68,7 @@ import lombok.experimental.Wither;
 @Wither
 @EqualsAndHashCode(callSuper = true)
 @RequiredArgsConstructor(onConstructor = @__({@DataBoundConstructor}))
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class QRebelPublisher extends Recorder implements SimpleBuildStep {
 
   static final String PLUGIN_SHORT_NAME = "qrebel";
@@ -72,7 +88,23 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
   final boolean DURATION;
   final boolean IO;
   final boolean EXCEPTIONS;
-
+  // optional, added after the required ones above, so existing configurations and call sites keep working
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  int samples = 1;
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  long sampleInterval;
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  int quorum;
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  long pushTimeout;
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  String trafficMode = TrafficMode.OFF.name();
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  int replayBuild;
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  long gateTimeout;
+  @Setter(onMethod = @__({@DataBoundSetter}))
+  String timeoutResult = Result.FAILURE.toString();
 
   @Symbol(PLUGIN_SHORT_NAME)
   @Extension
@@ -108,21 +140,23 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
       if (StringUtils.contains(appName, '$') || StringUtils.contains(apiToken, '$') || StringUtils.contains(apiUrl, '$')) {
         return FormValidation.warning("Cannot verify connection containing placeholders ${PLACEHOLDER}");
       }
-      try {
-        QRebelRestApiClient.createBasic(apiUrl).testConnection(apiToken, appName);
-        return FormValidation.ok("Success");
+      return ConnectionCheck.check(apiUrl, appName, apiToken, QRebelGlobalConfiguration.get().getTransport(apiUrl));
+    }
+
+    public ListBoxModel doFillTimeoutResultItems() {
+      ListBoxModel items = new ListBoxModel();
+      for (Result result : new Result[]{Result.FAILURE, Result.UNSTABLE, Result.ABORTED, Result.SUCCESS}) {
+        items.add(result.toString());
       }
-      catch (FeignException e) {
-        switch (e.status()) {
-          case 401: return FormValidation.error("Authorization failed");
-          case 404: return FormValidation.error("No application found");
-        }
-        Throwable cause = e.getCause();
-        if (cause != null && StringUtils.isNotBlank(cause.toString())) {
-          return FormValidation.error(cause.toString());
-        }
-        return FormValidation.error(e.getMessage());
+      return items;
+    }
+
+    public ListBoxModel doFillTrafficModeItems() {
+      ListBoxModel items = new ListBoxModel();
+      for (TrafficMode mode : TrafficMode.values()) {
+        items.add(mode.name());
       }
+      return items;
     }
 
     @POST
@@ -132,7 +166,9 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
   }
 
   @Override
-  public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, @Nonnull Launcher launcher, @Nonnull TaskListener listener) throws IOException {
+  public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, @Nonnull Launcher launcher, @Nonnull TaskListener listener) throws IOException, InterruptedException {
+    Deadline deadline = Deadline.after(gateTimeout);
+    deadline.stage("field resolution");
     Fields fields;
     if (run instanceof AbstractBuild) {
       fields = resolveFields((AbstractBuild) run);
@@ -149,25 +185,113 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
     logger.println("Target Version: " + fields.targetVersion);
     validateMinimalMandatoryParameters(fields);
 
-    IssuesResponse qRData = getIssues(fields, logger);
-    IssuesStats stats = new IssuesStats(qRData);
+    try {
+      evaluate(run, fields, deadline, logger);
+    }
+    catch (Deadline.DeadlineExceededException e) {
+      logger.println(e.getMessage());
+      run.setResult(fields.timeoutResult);
+    }
+    finally {
+      logger.println("QRebel gate timing: " + deadline.getTiming());
+    }
+  }
+
+  private static void evaluate(Run<?, ?> run, Fields fields, Deadline deadline, PrintStream logger) throws IOException, InterruptedException {
+    Client client = createClient(run, fields);
+    QRebelRestApi restApi = QRebelRestApiClient.create(fields.apiUrl, logger, client, QRebelGlobalConfiguration.get().getMaxInMemoryResponseBytes(), run.getRootDir(),
+        deadline::remainingMillis);
+    MatrixGateBatch batch = MatrixGateBatch.forConfiguration(run);
+    IssuesSamples issuesSamples;
+    try {
+      issuesSamples = batch == null ? getIssues(fields, restApi, deadline, logger) : batch.evaluate(fields, deadline, () -> getIssues(fields, restApi, deadline, logger));
+    }
+    finally {
+      try {
+        saveTraffic(run, client, logger);
+      }
+      finally {
+        if (client instanceof Closeable) {
+          ((Closeable) client).close();
+        }
+      }
+    }
+    deadline.stage("report");
+    IssuesResponse qRData = issuesSamples.getFirst();
+    IssuesStats stats = issuesSamples.getMedian();
+    boolean failBuild = issuesSamples.isGateExceeded(fields.quorum);
+    GateVerdict verdict = failBuild ? GateVerdict.FAILED : GateVerdict.PASSED;
 
-    boolean failBuild = qRData.issuesCount.DURATION > fields.slowRequestsAllowed
-        || qRData.issuesCount.IO > fields.excessiveIoAllowed
-        || qRData.issuesCount.EXCEPTIONS > fields.exceptionsAllowed
-        || stats.isSlaGlobalLimitExceeded(fields.slaGlobalLimit);
+    GateSummary summary = GateSummary.of(run, qRData, stats, fields, verdict);
+    // a replay reproduces an earlier gate, its result would count twice in the trends and dashboards
+    if (fields.trafficMode == TrafficMode.REPLAY || fields.trafficMode == TrafficMode.REPLAY_TIMED) {
+      logger.println("QRebel gate history not recorded for a replayed build");
+    }
+    else {
+      recordHistory(run, summary, qRData, logger);
+    }
+    if (batch != null) {
+      batch.record(run, summary);
+    }
 
     if (failBuild) {
-      FailureReport report = FailureReport.generate(qRData, fields);
-      String initialDescription = run.getDescription();
-      run.setDescription(StringUtils.isEmpty(initialDescription) ? report.asHtml() : initialDescription + "<br/>" + report.asHtml());
+      FailureReport report = FailureReport.generate(qRData, stats, fields);
+      appendDescription(run, report.asHtml());
       logger.println(report.asText());
       run.setResult(Result.FAILURE);
     }
   }
 
+  // HTTP client recording the traffic or replaying the traffic recorded by an earlier build
+  private static Client createClient(Run<?, ?> run, Fields fields) throws IOException {
+    switch (fields.trafficMode) {
+      case RECORD:
+        return new RecordingClient(QRebelGlobalConfiguration.get().getClient(fields.apiUrl), run.getRootDir());
+      case REPLAY:
+      case REPLAY_TIMED:
+        Run<?, ?> recorded = run.getParent().getBuildByNumber(fields.replayBuild);
+        if (recorded == null || !TrafficArchiveAction.getFile(recorded).exists()) {
+          throw new IllegalArgumentException("No QRebel traffic recorded in build #" + fields.replayBuild);
+        }
+        return new ReplayClient(TrafficArchive.read(TrafficArchiveAction.getFile(recorded)), fields.trafficMode == TrafficMode.REPLAY_TIMED);
+      default:
+        return QRebelGlobalConfiguration.get().getClient(fields.apiUrl);
+    }
+  }
+
+  private static void saveTraffic(Run<?, ?> run, Client client, PrintStream logger) throws IOException {
+    if (client instanceof RecordingClient) {
+      TrafficArchive archive = ((RecordingClient) client).getArchive();
+      archive.write(TrafficArchiveAction.getFile(run));
+      run.addAction(new TrafficArchiveAction());
+      logger.format("Recorded %d QRebel exchanges%n", archive.size());
+    }
+  }
+
+  static void appendDescription(Run<?, ?> run, String html) throws IOException {
+    String initialDescription = run.getDescription();
+    run.setDescription(StringUtils.isEmpty(initialDescription) ? html : initialDescription + "<br/>" + html);
+  }
+
+  // persist the gate result in the job history index, a failure to do so should not affect the build
+  private static void recordHistory(Run<?, ?> run, GateSummary summary, IssuesResponse qRData, PrintStream logger) {
+    try {
+      GateHistory.forJob(run.getParent()).append(summary);
+      // missing entry points would be stored as absent from this build
+      if (qRData.truncated) {
+        logger.println("QRebel endpoint durations not recorded, the response was truncated");
+      }
+      else {
+        DurationStore.forJob(run.getParent()).append(run.getNumber(), qRData.entryPoints);
+      }
+    }
+    catch (IOException e) {
+      logger.println("Failed to record QRebel gate history: " + e);
+    }
+  }
+
   //  fails a build and add error message to the log if the minimal param set in undefined
-  private static void validateMinimalMandatoryParameters(Fields fields) {
+  static void validateMinimalMandatoryParameters(Fields fields) {
     if (StringUtils.isEmpty(fields.appName) || StringUtils.isEmpty(fields.apiUrl) || StringUtils.isEmpty(fields.apiToken)) {
       throw new IllegalArgumentException("Connection parameters cannot be blank");
     }
@@ -179,9 +303,88 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
     }
   }
 
-  // Get issues via REST
-  private static IssuesResponse getIssues(Fields fields, PrintStream logger) {
-    QRebelRestApi restApi = QRebelRestApiClient.create(fields.apiUrl, logger);
+  // Get issues pushed by QRebel or via REST, several samples are spaced by sampleInterval and fetched concurrently
+  private static IssuesSamples getIssues(Fields fields, QRebelRestApi restApi, Deadline deadline, PrintStream logger) throws InterruptedException {
+    if (fields.pushTimeout > 0) {
+      deadline.stage("push wait");
+      logger.format("Waiting up to %d s for QRebel to push the analysis%n", fields.pushTimeout);
+      IssuesResponse pushed = PushNotifications.await(fields, deadline.cap(TimeUnit.SECONDS.toMillis(fields.pushTimeout)), TimeUnit.MILLISECONDS);
+      if (pushed != null) {
+        logger.println("Analysis pushed by QRebel");
+        IssuesSamples samples = new IssuesSamples(fields, 1);
+        samples.add(pushed);
+        return samples;
+      }
+      logger.println("No analysis pushed by QRebel in time, querying it");
+    }
+
+    deadline.stage("query");
+    IssuesRequest request = toIssuesRequest(fields);
+    int count = Math.max(1, fields.samples);
+    IssuesSamples samples = new IssuesSamples(fields, count);
+    if (count == 1) {
+      try {
+        samples.add(IoExecutor.call(() -> restApi.getIssues(fields.apiToken, fields.appName, request), deadline.remainingMillis()));
+      }
+      catch (TimeoutException e) {
+        throw deadline.exceeded();
+      }
+      return samples;
+    }
+
+    logger.format("Taking %d samples %d s apart%n", count, fields.sampleInterval);
+    CompletionService<IssuesResponse> completionService = new ExecutorCompletionService<>(IoExecutor.get());
+    List<Future<IssuesResponse>> futures = new ArrayList<>();
+    List<RuntimeException> failures = new ArrayList<>();
+    int received = 0;
+    try {
+      // the build thread waits anyway, so it spaces the samples instead of a pool thread
+      for (int i = 0; i < count; i++) {
+        if (i > 0) {
+          // samples received meanwhile are merged, so that the next one asks only for the changes since them
+          long nextSample = System.currentTimeMillis() + deadline.cap(TimeUnit.SECONDS.toMillis(fields.sampleInterval));
+          for (long wait = nextSample - System.currentTimeMillis(); wait > 0; wait = nextSample - System.currentTimeMillis()) {
+            Future<IssuesResponse> completed = completionService.poll(wait, TimeUnit.MILLISECONDS);
+            if (completed != null) {
+              addSample(samples, completed, failures, logger);
+              received++;
+            }
+          }
+          deadline.check();
+        }
+        IssuesRequest sampleRequest = samples.nextRequest(request);
+        futures.add(completionService.submit(() -> restApi.getIssues(fields.apiToken, fields.appName, sampleRequest)));
+      }
+      for (; received < count; received++) {
+        Future<IssuesResponse> completed = completionService.poll(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        if (completed == null) {
+          throw deadline.exceeded();
+        }
+        addSample(samples, completed, failures, logger);
+      }
+    }
+    finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    if (samples.size() == 0) {
+      throw failures.get(0);
+    }
+    logger.format("%d of %d samples received, %d exceeded the Performance Gate%n", samples.size(), count, samples.getExceeded());
+    return samples;
+  }
+
+  private static void addSample(IssuesSamples samples, Future<IssuesResponse> completed, List<RuntimeException> failures, PrintStream logger)
+      throws InterruptedException {
+    try {
+      samples.add(completed.get());
+    }
+    catch (ExecutionException e) {
+      logger.println("QRebel sample failed: " + e.getCause().getMessage());
+      failures.add(IoExecutor.unwrap(e));
+    }
+  }
+
+  static IssuesRequest toIssuesRequest(Fields fields) {
     IssuesRequest.IssuesRequestBuilder requestBuilder = IssuesRequest.builder()
         .targetBuild(fields.targetBuild)
         .targetVersion(fields.targetVersion)
@@ -198,7 +401,7 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
     else if (ComparisonStrategy.DEFAULT_BASELINE.equals(fields.comparisonStrategy)) {
       requestBuilder = requestBuilder.defaultBaseline(true);
     }
-    return restApi.getIssues(fields.apiToken, fields.appName, requestBuilder.build());
+    return requestBuilder.build();
   }
 
   private String toIssueTypes() {
@@ -215,7 +418,17 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
     return StringUtils.join(issueTypes, ",");
   }
 
-  private Fields resolveFields(AbstractBuild<?, ?> build) {
+  // the thresholds only, they do not depend on the build
+  Fields resolveThresholds() {
+    return Fields.builder()
+        .slowRequestsAllowed(slowRequestsAllowed)
+        .exceptionsAllowed(exceptionsAllowed)
+        .excessiveIoAllowed(excessiveIoAllowed)
+        .slaGlobalLimit(slaGlobalLimit)
+        .build();
+  }
+
+  Fields resolveFields(AbstractBuild<?, ?> build) {
     VariableResolver<String> varResolver = build.getBuildVariableResolver();
     return Fields.builder()
         .apiToken(StringUtils.trimToNull(Util.replaceMacro(apiToken, varResolver)))
@@ -231,6 +444,14 @@ public class QRebelPublisher extends Recorder implements SimpleBuildStep {
         .slaGlobalLimit(slaGlobalLimit)
         .comparisonStrategy(ComparisonStrategy.valueOf(comparisonStrategy))
         .issueTypes(toIssueTypes())
+        .samples(samples)
+        .sampleInterval(sampleInterval)
+        .quorum(quorum)
+        .pushTimeout(pushTimeout)
+        .trafficMode(StringUtils.isEmpty(trafficMode) ? TrafficMode.OFF : TrafficMode.valueOf(trafficMode))
+        .replayBuild(replayBuild)
+        .gateTimeout(gateTimeout)
+        .timeoutResult(StringUtils.isEmpty(timeoutResult) ? Result.FAILURE : Result.fromString(timeoutResult))
         .build();
   }
 
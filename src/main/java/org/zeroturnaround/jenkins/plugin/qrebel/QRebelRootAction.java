@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.verb.GET;
+import org.kohsuke.stapler.verb.POST;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesJson;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.UnprotectedRootAction;
+import hudson.security.csrf.CrumbExclusion;
+import hudson.util.Secret;
+import jenkins.model.Jenkins;
+
+/**
+ * Endpoints QRebel calls back into. Not protected by Jenkins permissions,
+ * every request must be signed with the webhook secret from the global configuration.
+ */
+@Extension
+public class QRebelRootAction implements UnprotectedRootAction {
+
+  static final String URL_NAME = "qrebel";
+  static final String WEBHOOK = "webhook";
+  static final String SIGNATURE_HEADER = "X-QRebel-Signature";
+  static final String SIGNATURE_PREFIX = "sha256=";
+  static final String TIMESTAMP_HEADER = "X-QRebel-Timestamp";
+  static final String STRATEGY_HEADER = "X-QRebel-Comparison-Strategy";
+  static final long MAX_AGE_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+  static final int MAX_BODY_BYTES = 10 * 1024 * 1024;
+
+  private static final Gson GSON = new Gson();
+  // signatures accepted within MAX_AGE_SECONDS with their timestamp, a replayed push is rejected
+  private static final Map<String, Long> ACCEPTED_SIGNATURES = new ConcurrentHashMap<>();
+
+  @Override
+  public String getIconFileName() {
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "QRebel";
+  }
+
+  @Override
+  public String getUrlName() {
+    return URL_NAME;
+  }
+
+  // QRebel posts an analysis once it is ready for a target build,
+  // signing the timestamp, the comparison strategy and the body
+  @POST
+  public HttpResponse doWebhook(StaplerRequest req) throws IOException {
+    Secret secret = QRebelGlobalConfiguration.get().getWebhookSecret();
+    if (secret == null || StringUtils.isEmpty(secret.getPlainText())) {
+      return HttpResponses.error(HttpServletResponse.SC_NOT_FOUND, "QRebel webhook secret is not configured");
+    }
+
+    byte[] body = IOUtils.toByteArray(new BoundedInputStream(req.getInputStream(), MAX_BODY_BYTES + 1L));
+    if (body.length > MAX_BODY_BYTES) {
+      return HttpResponses.error(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Payload too large");
+    }
+    String timestamp = StringUtils.defaultString(req.getHeader(TIMESTAMP_HEADER)).trim();
+    String strategy = StringUtils.defaultString(req.getHeader(STRATEGY_HEADER)).trim();
+    String signature = req.getHeader(SIGNATURE_HEADER);
+    if (!isSignatureValid(secret.getPlainText(), timestamp, strategy, body, signature)) {
+      return HttpResponses.error(HttpServletResponse.SC_FORBIDDEN, "Invalid signature");
+    }
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    Long signedAt = parseLong(timestamp);
+    if (signedAt == null || Math.abs(now - signedAt) > MAX_AGE_SECONDS) {
+      return HttpResponses.error(HttpServletResponse.SC_FORBIDDEN, "Stale or missing timestamp");
+    }
+    ACCEPTED_SIGNATURES.values().removeIf(accepted -> now - accepted > MAX_AGE_SECONDS);
+    if (ACCEPTED_SIGNATURES.putIfAbsent(signature.trim().toLowerCase(), signedAt) != null) {
+      return HttpResponses.error(HttpServletResponse.SC_FORBIDDEN, "Push already received");
+    }
+    ComparisonStrategy comparisonStrategy;
+    try {
+      comparisonStrategy = ComparisonStrategy.valueOf(strategy);
+    }
+    catch (IllegalArgumentException e) {
+      return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, "Unknown comparison strategy " + strategy);
+    }
+
+    IssuesResponse qRData;
+    try {
+      qRData = IssuesJson.GSON.fromJson(new String(body, StandardCharsets.UTF_8), IssuesResponse.class);
+    }
+    catch (JsonParseException e) {
+      return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+    }
+    if (qRData == null || StringUtils.isBlank(qRData.appName) || StringUtils.isBlank(qRData.targetBuild) || qRData.issuesCount == null || qRData.entryPoints == null) {
+      return HttpResponses.error(HttpServletResponse.SC_BAD_REQUEST, "Incomplete analysis");
+    }
+    // no content when no gate waits for this analysis, it is dropped
+    return HttpResponses.status(PushNotifications.deliver(qRData, comparisonStrategy) ? HttpServletResponse.SC_ACCEPTED : HttpServletResponse.SC_NO_CONTENT);
+  }
+
+  // state of the QRebel I/O pool, for administrators
+  @GET
+  public HttpResponse doExecutor() {
+    Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+    Map<String, Object> state = new LinkedHashMap<>();
+    state.put("threads", IoExecutor.THREADS);
+    state.put("queueCapacity", IoExecutor.QUEUE_CAPACITY);
+    state.put("poolSize", IoExecutor.getPoolSize());
+    state.put("activeCount", IoExecutor.getActiveCount());
+    state.put("queueDepth", IoExecutor.getQueueDepth());
+    state.put("completedTaskCount", IoExecutor.getCompletedTaskCount());
+    state.put("rejectedCount", IoExecutor.getRejectedCount());
+    return (req, rsp, node) -> {
+      rsp.setContentType("application/json;charset=UTF-8");
+      GSON.toJson(state, rsp.getWriter());
+    };
+  }
+
+  // HMAC-SHA256 of "<timestamp>.<strategy>.<body>"
+  static String sign(String secret, String timestamp, String strategy, byte[] body) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+      mac.update((timestamp + "." + strategy + ".").getBytes(StandardCharsets.UTF_8));
+      return SIGNATURE_PREFIX + Util.toHexString(mac.doFinal(body));
+    }
+    catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static boolean isSignatureValid(String secret, String timestamp, String strategy, byte[] body, String signature) {
+    return signature != null && MessageDigest.isEqual(
+        sign(secret, timestamp, strategy, body).getBytes(StandardCharsets.UTF_8),
+        signature.trim().toLowerCase().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Long parseLong(String value) {
+    try {
+      return Long.valueOf(value);
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  // the webhook is authenticated by its signature instead of a crumb
+  @Extension
+  public static class WebhookCrumbExclusion extends CrumbExclusion {
+    @Override
+    public boolean process(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+      String pathInfo = req.getPathInfo();
+      if (pathInfo != null && pathInfo.equals("/" + URL_NAME + "/" + WEBHOOK)) {
+        chain.doFilter(req, resp);
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApi;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApiClient;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.LogTaskListener;
+import lombok.Value;
+
+/**
+ * Finds the first build crossing the current thresholds of the Performance Gate by bisecting the build numbers
+ * between a passing and a failing one. Stored gate results are used where available, only the probed builds
+ * without one are loaded and queried from QRebel, so at most O(log n) builds are loaded and queried.
+ */
+class RegressionLocator {
+
+  static final String HISTORY = "history";
+  static final String QREBEL = "QRebel";
+
+  private static final Logger LOGGER = Logger.getLogger(RegressionLocator.class.getName());
+
+  private final AbstractProject<?, ?> project;
+  private final QRebelPublisher publisher;
+  private final GateHistory history;
+  private final Deadline deadline;
+  private final List<Step> steps = new ArrayList<>();
+  private int hubQueries;
+
+  // the QRebel queries of one search share the deadline
+  RegressionLocator(AbstractProject<?, ?> project, QRebelPublisher publisher, Deadline deadline) {
+    this.project = project;
+    this.publisher = publisher;
+    this.history = GateHistory.forJob(project);
+    this.deadline = deadline;
+  }
+
+  @Value
+  static class Step {
+    int number;
+    boolean exceeded;
+    // where the result came from, HISTORY or QREBEL
+    String source;
+  }
+
+  @Value
+  static class Result {
+    int good;
+    int bad;
+    // null when the range does not contain a regression
+    Integer firstRegressed;
+    String message;
+    int hubQueries;
+    List<Step> steps;
+  }
+
+  // good and bad default to the oldest and the latest completed build
+  Result locate(Integer good, Integer bad) throws InterruptedException {
+    Integer low = good == null ? getOldestNumber() : good;
+    Integer high = bad == null ? getLatestNumber() : bad;
+    if (low == null || high == null) {
+      throw new IllegalArgumentException("No completed builds");
+    }
+    if (low >= high) {
+      throw new IllegalArgumentException("The passing build must be older than the failing build");
+    }
+
+    int goodNumber = low;
+    int badNumber = high;
+    if (!isExceeded(badNumber)) {
+      return result(goodNumber, badNumber, null, "Build #" + badNumber + " does not cross the thresholds");
+    }
+    if (isExceeded(goodNumber)) {
+      return result(goodNumber, badNumber, null, "Build #" + goodNumber + " already crosses the thresholds");
+    }
+    // invariant: low passes, high fails
+    while (high - low > 1) {
+      Integer mid = getProbe(low, high);
+      if (mid == null) {
+        break;
+      }
+      if (isExceeded(mid)) {
+        high = mid;
+      }
+      else {
+        low = mid;
+      }
+    }
+    int firstRegressed = high;
+    return result(goodNumber, badNumber, firstRegressed, "Build #" + firstRegressed + " is the first one crossing the thresholds");
+  }
+
+  private Result result(int good, int bad, Integer firstRegressed, String message) {
+    return new Result(good, bad, firstRegressed, message, hubQueries, new ArrayList<>(steps));
+  }
+
+  private Integer getOldestNumber() {
+    AbstractBuild<?, ?> build = project.getFirstBuild();
+    return build == null || build.isBuilding() ? null : build.getNumber();
+  }
+
+  private Integer getLatestNumber() {
+    AbstractBuild<?, ?> build = project.getLastCompletedBuild();
+    return build == null ? null : build.getNumber();
+  }
+
+  // the number in between with a result closest to the midpoint, null when there is none
+  private Integer getProbe(int low, int high) {
+    int mid = (low + high) >>> 1;
+    if (history.get(mid) != null || isCompleted(project.getBuildByNumber(mid))) {
+      return mid;
+    }
+    // deleted or running, only the nearest builds are loaded
+    AbstractBuild<?, ?> newer = project.getNearestBuild(mid);
+    if (isCompleted(newer) && newer.getNumber() < high) {
+      return newer.getNumber();
+    }
+    AbstractBuild<?, ?> older = project.getNearestOldBuild(mid);
+    if (isCompleted(older) && older.getNumber() > low) {
+      return older.getNumber();
+    }
+    return null;
+  }
+
+  private static boolean isCompleted(AbstractBuild<?, ?> build) {
+    return build != null && !build.isBuilding();
+  }
+
+  // the thresholds are the current ones, the build is only loaded to resolve its target when it has no stored result
+  private boolean isExceeded(int number) throws InterruptedException {
+    GateSummary stored = history.get(number);
+    Fields fields;
+    IssuesStats stats;
+    String source;
+    if (stored != null) {
+      fields = publisher.resolveThresholds();
+      stats = new IssuesStats(stored.getSlowRequests(), stored.getExcessiveIo(), stored.getExceptions(), stored.getSlowestDuration());
+      source = HISTORY;
+    }
+    else {
+      AbstractBuild<?, ?> build = project.getBuildByNumber(number);
+      if (!isCompleted(build)) {
+        throw new IllegalArgumentException("No completed build #" + number);
+      }
+      fields = publisher.resolveFields(build);
+      stats = new IssuesStats(query(fields));
+      source = QREBEL;
+    }
+    boolean exceeded = stats.isGateExceeded(fields);
+    steps.add(new Step(number, exceeded, source));
+    return exceeded;
+  }
+
+  // bounded like a gate: timeouts and retries within the deadline, large responses spilled to the job directory
+  private IssuesResponse query(Fields fields) throws InterruptedException {
+    QRebelPublisher.validateMinimalMandatoryParameters(fields);
+    deadline.check();
+    hubQueries++;
+    QRebelRestApi restApi = QRebelRestApiClient.create(fields.apiUrl, new LogTaskListener(LOGGER, Level.FINE).getLogger(),
+        QRebelGlobalConfiguration.get().getClient(fields.apiUrl), QRebelGlobalConfiguration.get().getMaxInMemoryResponseBytes(),
+        project.getRootDir(), deadline::remainingMillis);
+    try {
+      return IoExecutor.call(() -> restApi.getIssues(fields.apiToken, fields.appName, QRebelPublisher.toIssuesRequest(fields)), deadline.remainingMillis());
+    }
+    catch (TimeoutException e) {
+      throw deadline.exceeded();
+    }
+  }
+}
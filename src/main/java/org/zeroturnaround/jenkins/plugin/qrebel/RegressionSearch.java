@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import hudson.model.AbstractProject;
+import hudson.model.Computer;
+import hudson.model.Job;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+
+/**
+ * {@link RegressionLocator} runs in the background, at most one per job, so that the QRebel queries of a search
+ * do not hold a web request. The whole search is bounded by the gate timeout of the job, or by a default one.
+ */
+class RegressionSearch {
+
+  static final long DEFAULT_TIMEOUT_SECONDS = Long.getLong("qrebel.jenkins.regressionTimeout", 300L);
+
+  private static final Map<Job<?, ?>, RegressionSearch> SEARCHES = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Future<RegressionLocator.Result> future;
+
+  private RegressionSearch(Future<RegressionLocator.Result> future) {
+    this.future = future;
+  }
+
+  // a search already running for the job is returned instead of starting another one
+  static RegressionSearch start(AbstractProject<?, ?> project, QRebelPublisher publisher, Integer good, Integer bad) {
+    synchronized (SEARCHES) {
+      RegressionSearch running = SEARCHES.get(project);
+      if (running != null && !running.isDone()) {
+        return running;
+      }
+      Deadline deadline = Deadline.after(publisher.gateTimeout > 0 ? publisher.gateTimeout : DEFAULT_TIMEOUT_SECONDS);
+      // the caller's permission to configure the job was checked when starting the search
+      RegressionSearch search = new RegressionSearch(Computer.threadPoolForRemoting.submit(() -> {
+        try (ACLContext ignored = ACL.as(ACL.SYSTEM)) {
+          return new RegressionLocator(project, publisher, deadline).locate(good, bad);
+        }
+      }));
+      SEARCHES.put(project, search);
+      return search;
+    }
+  }
+
+  // the latest search of the job, null when none was started
+  static RegressionSearch get(Job<?, ?> job) {
+    return SEARCHES.get(job);
+  }
+
+  boolean isDone() {
+    return future.isDone();
+  }
+
+  // waits for the result, the failure of the search is thrown as the cause of an ExecutionException
+  RegressionLocator.Result getResult() throws InterruptedException, ExecutionException {
+    return future.get();
+  }
+}
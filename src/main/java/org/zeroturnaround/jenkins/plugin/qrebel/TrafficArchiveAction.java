@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.verb.GET;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.TrafficArchive;
+
+import hudson.model.Item;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Download link of the QRebel traffic recorded by a build
+ */
+public class TrafficArchiveAction implements RunAction2 {
+
+  private transient Run<?, ?> run;
+
+  @Override
+  public String getIconFileName() {
+    return "package.png";
+  }
+
+  @Override
+  public String getDisplayName() {
+    return "QRebel Traffic";
+  }
+
+  @Override
+  public String getUrlName() {
+    return "qrebel-traffic";
+  }
+
+  @Override
+  public void onAttached(Run<?, ?> r) {
+    run = r;
+  }
+
+  @Override
+  public void onLoad(Run<?, ?> r) {
+    run = r;
+  }
+
+  static File getFile(Run<?, ?> run) {
+    return new File(run.getRootDir(), TrafficArchive.FILE_NAME);
+  }
+
+  @GET
+  public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+    run.checkPermission(Item.READ);
+    File file = getFile(run);
+    if (!file.exists()) {
+      rsp.sendError(StaplerResponse.SC_NOT_FOUND);
+      return;
+    }
+    rsp.setContentType("application/zip");
+    rsp.setHeader("Content-Disposition", "attachment; filename=" + TrafficArchive.FILE_NAME);
+    Files.copy(file.toPath(), rsp.getOutputStream());
+  }
+}
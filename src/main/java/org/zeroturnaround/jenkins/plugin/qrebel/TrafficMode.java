@@ -0,0 +1,13 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+// Whether the QRebel traffic of a build is recorded or replayed from an earlier build
+enum TrafficMode {
+  OFF, RECORD, REPLAY, REPLAY_TIMED
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.StringUtils;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApiClient;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.AbstractProject;
+import jenkins.model.Jenkins;
+
+/**
+ * Pays the one-off costs of the first QRebel calls (class loading, plugin version lookup, the Test Connection client,
+ * a gate client through the configured transport and optionally the first connection) at startup instead
+ */
+public class WarmUp {
+
+  private static final Logger LOGGER = Logger.getLogger(WarmUp.class.getName());
+
+  // opening a connection to each QRebel server is opt-in
+  static final boolean CONNECT = Boolean.getBoolean("qrebel.jenkins.warmUpConnections");
+
+  @Initializer(after = InitMilestone.JOB_LOADED)
+  public static void warmUp() {
+    IoExecutor.get().execute(WarmUp::run);
+  }
+
+  static void run() {
+    PluginVersion.get();
+    for (String apiUrl : getConfiguredApiUrls()) {
+      try {
+        QRebelRestApiClient.warmUp(apiUrl, QRebelGlobalConfiguration.get().getClient(apiUrl),
+            QRebelGlobalConfiguration.get().getMaxInMemoryResponseBytes(), CONNECT);
+      }
+      catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.FINE, "QRebel warm-up failed for " + apiUrl, e);
+      }
+    }
+  }
+
+  // placeholders are resolved per build and cannot be warmed up
+  private static Set<String> getConfiguredApiUrls() {
+    Set<String> apiUrls = new TreeSet<>();
+    for (AbstractProject<?, ?> project : Jenkins.get().getAllItems(AbstractProject.class)) {
+      QRebelPublisher publisher = project.getPublishersList().get(QRebelPublisher.class);
+      if (publisher != null && StringUtils.isNotBlank(publisher.apiUrl) && !StringUtils.contains(publisher.apiUrl, '$')) {
+        apiUrls.add(publisher.apiUrl.trim());
+      }
+    }
+    return apiUrls;
+  }
+}
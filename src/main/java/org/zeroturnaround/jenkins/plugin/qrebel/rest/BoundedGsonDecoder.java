@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.commons.io.IOUtils;
+
+import feign.Response;
+import feign.codec.Decoder;
+
+/**
+ * Decodes issues responses in memory up to a size limit. Larger bodies are spilled to a temporary file
+ * and parsed from there with {@link IssuesStreamParser}, which keeps only the slowest entry points
+ * and marks the response as truncated when it drops any.
+ */
+public class BoundedGsonDecoder implements Decoder {
+
+  // entry points kept from a spilled response, the slowest ones decide the SLA global limit
+  static final int SPILLED_ENTRY_POINTS = 10000;
+
+  private final Decoder delegate;
+  private final long maxInMemoryBytes;
+  private final File spillDir;
+  private final PrintStream logger;
+
+  public BoundedGsonDecoder(Decoder delegate, long maxInMemoryBytes, File spillDir, PrintStream logger) {
+    this.delegate = delegate;
+    this.maxInMemoryBytes = maxInMemoryBytes;
+    this.spillDir = spillDir;
+    this.logger = logger;
+  }
+
+  @Override
+  public Object decode(Response response, Type type) throws IOException {
+    if (response.body() == null || type != IssuesResponse.class) {
+      return delegate.decode(response, type);
+    }
+
+    try (InputStream body = response.body().asInputStream()) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      long copied = IOUtils.copyLarge(body, buffer, 0L, maxInMemoryBytes + 1L);
+      if (copied <= maxInMemoryBytes) {
+        Response buffered = Response.builder()
+            .status(response.status())
+            .reason(response.reason())
+            .headers(response.headers())
+            .request(response.request())
+            .body(buffer.toByteArray())
+            .build();
+        return delegate.decode(buffered, type);
+      }
+
+      File spilled = File.createTempFile("qrebel-issues", ".json", spillDir);
+      try {
+        try (OutputStream out = new FileOutputStream(spilled)) {
+          buffer.writeTo(out);
+          long size = copied + IOUtils.copyLarge(body, out);
+          logger.format("QRebel response of %d bytes exceeded the in-memory limit of %d bytes, spilled to %s%n", size, maxInMemoryBytes, spilled);
+        }
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(spilled), StandardCharsets.UTF_8))) {
+          IssuesStreamParser parser = new IssuesStreamParser(SPILLED_ENTRY_POINTS);
+          IssuesResponse parsed = parser.parse(reader);
+          if (parsed.truncated) {
+            logger.format("QRebel response truncated to the %d slowest of %d entry points, the others are not recorded%n",
+                SPILLED_ENTRY_POINTS, parser.getTotalEntryPoints());
+          }
+          return parsed;
+        }
+      }
+      finally {
+        Files.deleteIfExists(spilled.toPath());
+      }
+    }
+  }
+}
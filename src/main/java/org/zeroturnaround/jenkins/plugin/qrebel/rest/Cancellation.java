@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cancellation of one task making QRebel calls. Blocking socket reads ignore thread interrupts,
+ * so the transports register how to abort their in-flight request (closing the connection)
+ * with the cancellation bound to the current thread, and {@link #cancel()} runs those actions.
+ */
+public final class Cancellation {
+
+  private static final Logger LOGGER = Logger.getLogger(Cancellation.class.getName());
+  private static final ThreadLocal<Cancellation> CURRENT = new ThreadLocal<>();
+
+  private final List<Runnable> actions = new ArrayList<>();
+  private boolean cancelled;
+
+  // makes this the cancellation of the task running on the current thread
+  public void bind() {
+    CURRENT.set(this);
+  }
+
+  public void unbind() {
+    CURRENT.remove();
+  }
+
+  // registers how to abort a request made on the current thread, fails if the task is already cancelled
+  static void onCancel(Runnable action) throws InterruptedIOException {
+    Cancellation current = CURRENT.get();
+    if (current == null) {
+      return;
+    }
+    synchronized (current) {
+      if (current.cancelled) {
+        throw new InterruptedIOException("QRebel request cancelled");
+      }
+      current.actions.add(action);
+    }
+  }
+
+  public void cancel() {
+    List<Runnable> pending;
+    synchronized (this) {
+      cancelled = true;
+      pending = new ArrayList<>(actions);
+      actions.clear();
+    }
+    for (Runnable action : pending) {
+      try {
+        action.run();
+      }
+      catch (RuntimeException e) {
+        LOGGER.log(Level.FINE, "Failed to abort a QRebel request", e);
+      }
+    }
+  }
+}
@@ -11,5 +11,6 @@ import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
 public class EntryPoint {
+  public final String name;
   public final Duration duration;
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Hand-written JSON codec of the issues model, so that decoding does not go through reflection.
+ * Unknown properties are skipped, missing ones are left null (or 0 for the issue counts).
+ */
+public final class IssuesJson {
+
+  // thread-safe, shared by all clients
+  public static final Gson GSON = new GsonBuilder()
+      .registerTypeAdapter(IssuesResponse.class, new IssuesResponseAdapter())
+      .registerTypeAdapter(IssuesCount.class, new IssuesCountAdapter())
+      .registerTypeAdapter(EntryPoint.class, new EntryPointAdapter())
+      .registerTypeAdapter(Duration.class, new DurationAdapter())
+      .create();
+
+  // reads the entryPoints array, lets the stream parser keep only part of it
+  interface EntryPointsReader {
+    List<EntryPoint> read(JsonReader reader) throws IOException;
+  }
+
+  private IssuesJson() {
+  }
+
+  static IssuesResponse readIssuesResponse(JsonReader reader, EntryPointsReader entryPointsReader) throws IOException {
+    String appName = null;
+    String baselineBuild = null;
+    String baselineVersion = null;
+    String targetBuild = null;
+    String targetVersion = null;
+    String appViewUrl = null;
+    IssuesCount issuesCount = null;
+    List<EntryPoint> entryPoints = null;
+    String cursor = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.skipValue();
+        continue;
+      }
+      switch (name) {
+        case "appName": appName = reader.nextString(); break;
+        case "baselineBuild": baselineBuild = reader.nextString(); break;
+        case "baselineVersion": baselineVersion = reader.nextString(); break;
+        case "targetBuild": targetBuild = reader.nextString(); break;
+        case "targetVersion": targetVersion = reader.nextString(); break;
+        case "appViewUrl": appViewUrl = reader.nextString(); break;
+        case "issuesCount": issuesCount = readIssuesCount(reader); break;
+        case "entryPoints": entryPoints = entryPointsReader.read(reader); break;
+        case "cursor": cursor = reader.nextString(); break;
+        default: reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new IssuesResponse(appName, baselineBuild, baselineVersion, targetBuild, targetVersion, appViewUrl, issuesCount, entryPoints, cursor, false);
+  }
+
+  static List<EntryPoint> readEntryPoints(JsonReader reader) throws IOException {
+    List<EntryPoint> entryPoints = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      entryPoints.add(readEntryPoint(reader));
+    }
+    reader.endArray();
+    return entryPoints;
+  }
+
+  static IssuesCount readIssuesCount(JsonReader reader) throws IOException {
+    long duration = 0L;
+    long exceptions = 0L;
+    long io = 0L;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.skipValue();
+        continue;
+      }
+      switch (name) {
+        case "DURATION": duration = reader.nextLong(); break;
+        case "EXCEPTIONS": exceptions = reader.nextLong(); break;
+        case "IO": io = reader.nextLong(); break;
+        default: reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new IssuesCount(duration, exceptions, io);
+  }
+
+  static EntryPoint readEntryPoint(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    String name = null;
+    Duration duration = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String property = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.skipValue();
+        continue;
+      }
+      switch (property) {
+        case "name": name = reader.nextString(); break;
+        case "duration": duration = readDuration(reader); break;
+        default: reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new EntryPoint(name, duration);
+  }
+
+  static Duration readDuration(JsonReader reader) throws IOException {
+    Long slowestPercentile = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() != JsonToken.NULL && "slowestPercentile".equals(name)) {
+        slowestPercentile = reader.nextLong();
+      }
+      else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new Duration(slowestPercentile);
+  }
+
+  private static void writeIssuesCount(JsonWriter writer, IssuesCount issuesCount) throws IOException {
+    writer.beginObject();
+    writer.name("DURATION").value(issuesCount.DURATION);
+    writer.name("EXCEPTIONS").value(issuesCount.EXCEPTIONS);
+    writer.name("IO").value(issuesCount.IO);
+    writer.endObject();
+  }
+
+  private static void writeEntryPoint(JsonWriter writer, EntryPoint entryPoint) throws IOException {
+    writer.beginObject();
+    writer.name("name").value(entryPoint.name);
+    if (entryPoint.duration != null) {
+      writer.name("duration");
+      writeDuration(writer, entryPoint.duration);
+    }
+    writer.endObject();
+  }
+
+  private static void writeDuration(JsonWriter writer, Duration duration) throws IOException {
+    writer.beginObject();
+    writer.name("slowestPercentile").value(duration.slowestPercentile);
+    writer.endObject();
+  }
+
+  private static final class IssuesResponseAdapter extends TypeAdapter<IssuesResponse> {
+    @Override
+    public void write(JsonWriter writer, IssuesResponse value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+        return;
+      }
+      writer.beginObject();
+      writer.name("appName").value(value.appName);
+      writer.name("baselineBuild").value(value.baselineBuild);
+      writer.name("baselineVersion").value(value.baselineVersion);
+      writer.name("targetBuild").value(value.targetBuild);
+      writer.name("targetVersion").value(value.targetVersion);
+      writer.name("appViewUrl").value(value.appViewUrl);
+      if (value.issuesCount != null) {
+        writer.name("issuesCount");
+        writeIssuesCount(writer, value.issuesCount);
+      }
+      if (value.entryPoints != null) {
+        writer.name("entryPoints").beginArray();
+        for (EntryPoint entryPoint : value.entryPoints) {
+          if (entryPoint == null) {
+            writer.nullValue();
+          }
+          else {
+            writeEntryPoint(writer, entryPoint);
+          }
+        }
+        writer.endArray();
+      }
+      if (value.cursor != null) {
+        writer.name("cursor").value(value.cursor);
+      }
+      writer.endObject();
+    }
+
+    @Override
+    public IssuesResponse read(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        return null;
+      }
+      return readIssuesResponse(reader, IssuesJson::readEntryPoints);
+    }
+  }
+
+  private static final class IssuesCountAdapter extends TypeAdapter<IssuesCount> {
+    @Override
+    public void write(JsonWriter writer, IssuesCount value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+      }
+      else {
+        writeIssuesCount(writer, value);
+      }
+    }
+
+    @Override
+    public IssuesCount read(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        return null;
+      }
+      return readIssuesCount(reader);
+    }
+  }
+
+  private static final class EntryPointAdapter extends TypeAdapter<EntryPoint> {
+    @Override
+    public void write(JsonWriter writer, EntryPoint value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+      }
+      else {
+        writeEntryPoint(writer, value);
+      }
+    }
+
+    @Override
+    public EntryPoint read(JsonReader reader) throws IOException {
+      return readEntryPoint(reader);
+    }
+  }
+
+  private static final class DurationAdapter extends TypeAdapter<Duration> {
+    @Override
+    public void write(JsonWriter writer, Duration value) throws IOException {
+      if (value == null) {
+        writer.nullValue();
+      }
+      else {
+        writeDuration(writer, value);
+      }
+    }
+
+    @Override
+    public Duration read(JsonReader reader) throws IOException {
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        return null;
+      }
+      return readDuration(reader);
+    }
+  }
+}
@@ -7,8 +7,12 @@
  */
 package org.zeroturnaround.jenkins.plugin.qrebel.rest;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import lombok.Builder;
 import lombok.NonNull;
+import lombok.experimental.Wither;
 
 @Builder
 public class IssuesRequest {
@@ -27,4 +31,30 @@ public class IssuesRequest {
   final String baselineBuild;
   final String baselineVersion;
   final String issues;
+  // only entry points changed after this cursor of a previous response
+  @Wither
+  final String since;
+
+  // query parameters in declaration order, null ones are left out
+  Map<String, Object> toQueryMap() {
+    Map<String, Object> query = new LinkedHashMap<>();
+    put(query, "targetBuild", targetBuild);
+    put(query, "targetVersion", targetVersion);
+    put(query, "slowRequestsAllowed", slowRequestsAllowed);
+    put(query, "excessiveIOAllowed", excessiveIOAllowed);
+    put(query, "exceptionsAllowed", exceptionsAllowed);
+    put(query, "jenkinsPluginVersion", jenkinsPluginVersion);
+    put(query, "defaultBaseline", defaultBaseline);
+    put(query, "baselineBuild", baselineBuild);
+    put(query, "baselineVersion", baselineVersion);
+    put(query, "issues", issues);
+    put(query, "since", since);
+    return query;
+  }
+
+  private static void put(Map<String, Object> query, String name, Object value) {
+    if (value != null) {
+      query.put(name, value);
+    }
+  }
 }
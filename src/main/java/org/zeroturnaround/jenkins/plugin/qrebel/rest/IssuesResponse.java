@@ -27,5 +27,9 @@ public class IssuesResponse {
   public final String appViewUrl;
   public final IssuesCount issuesCount;
   public final List<EntryPoint> entryPoints;
+  // position to pass as IssuesRequest.since, null when the server sends full responses only
+  public final String cursor;
+  // set when entry points were dropped to bound the memory used, the list then holds the slowest ones only
+  public final transient boolean truncated;
 
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.gson.stream.JsonReader;
+
+import lombok.Getter;
+
+/**
+ * Parses an issues response entry point by entry point, keeping only the slowest ones,
+ * so that the memory used does not depend on the size of the response.
+ * A response that had more entry points is marked as {@link IssuesResponse#truncated}.
+ */
+class IssuesStreamParser {
+
+  private static final Comparator<EntryPoint> BY_SLOWEST_PERCENTILE = Comparator.comparingLong(IssuesStreamParser::slowestPercentile);
+
+  private final int maxEntryPoints;
+  @Getter
+  private long totalEntryPoints;
+
+  IssuesStreamParser(int maxEntryPoints) {
+    this.maxEntryPoints = maxEntryPoints;
+  }
+
+  IssuesResponse parse(Reader input) throws IOException {
+    IssuesResponse response = IssuesJson.readIssuesResponse(new JsonReader(input), this::readSlowest);
+    return response.withTruncated(totalEntryPoints > maxEntryPoints);
+  }
+
+  private List<EntryPoint> readSlowest(JsonReader reader) throws IOException {
+    PriorityQueue<EntryPoint> slowest = new PriorityQueue<>(BY_SLOWEST_PERCENTILE);
+    reader.beginArray();
+    while (reader.hasNext()) {
+      EntryPoint entryPoint = IssuesJson.readEntryPoint(reader);
+      totalEntryPoints++;
+      slowest.add(entryPoint);
+      if (slowest.size() > maxEntryPoints) {
+        slowest.poll();
+      }
+    }
+    reader.endArray();
+    return new ArrayList<>(slowest);
+  }
+
+  private static long slowestPercentile(EntryPoint entryPoint) {
+    return entryPoint == null || entryPoint.duration == null || entryPoint.duration.slowestPercentile == null ? -1L : entryPoint.duration.slowestPercentile;
+  }
+}
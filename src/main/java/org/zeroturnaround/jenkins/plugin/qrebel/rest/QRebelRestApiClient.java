@@ -7,24 +7,94 @@
  */
 package org.zeroturnaround.jenkins.plugin.qrebel.rest;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 
+import feign.Client;
 import feign.Feign;
 import feign.Logger;
+import feign.QueryMapEncoder;
+import feign.Request;
 import feign.Response;
+import feign.RetryableException;
+import feign.Retryer;
+import feign.codec.Decoder;
 import feign.codec.ErrorDecoder;
 import feign.gson.GsonDecoder;
+import lombok.Value;
 
 /**
  * Configures Open FEIGN
  */
 public class QRebelRestApiClient {
+
+  private static final int WARM_UP_TIMEOUT_MILLIS = 5000;
+  private static final int BASIC_CONNECT_TIMEOUT_MILLIS = 3000;
+  private static final int BASIC_READ_TIMEOUT_MILLIS = 5000;
+  // Feign defaults
+  private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+  private static final int DEFAULT_READ_TIMEOUT_MILLIS = 60000;
+
+  // thread-safe, shared by all clients
+  private static final Decoder DECODER = new GsonDecoder(IssuesJson.GSON);
+  private static final QueryMapEncoder QUERY_MAP_ENCODER = new IssuesRequestEncoder();
+  // stateless, for callers without a configured transport
+  private static final Client DEFAULT_CLIENT = Transport.URL_CONNECTION.createClient();
+  // keyed by whatever URL is validated in the form, so only the most recently used ones are kept
+  static final int MAX_BASIC_CLIENTS = 16;
+  private static final Map<BasicKey, QRebelRestApi> BASIC_CLIENTS = Collections.synchronizedMap(
+      new LinkedHashMap<BasicKey, QRebelRestApi>(MAX_BASIC_CLIENTS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BasicKey, QRebelRestApi> eldest) {
+          return size() > MAX_BASIC_CLIENTS;
+        }
+      });
+
   // create a new client instance
   public static QRebelRestApi create(String apiUrl, PrintStream logger) {
+    return create(apiUrl, logger, DEFAULT_CLIENT);
+  }
+
+  // create a new client instance sending the requests through the given HTTP client
+  public static QRebelRestApi create(String apiUrl, PrintStream logger, Client client) {
+    return create(apiUrl, logger, client, DECODER);
+  }
+
+  // create a new client instance decoding issues in memory up to maxInMemoryBytes and from a file in spillDir beyond
+  public static QRebelRestApi create(String apiUrl, PrintStream logger, Client client, long maxInMemoryBytes, File spillDir) {
+    return create(apiUrl, logger, client, new BoundedGsonDecoder(DECODER, maxInMemoryBytes, spillDir, logger));
+  }
+
+  // as above, with timeouts and retries fitting in the time left, remainingMillis is asked again before each request
+  public static QRebelRestApi create(String apiUrl, PrintStream logger, Client client, long maxInMemoryBytes, File spillDir, LongSupplier remainingMillis) {
+    return builder(logger, new DeadlineClient(client, remainingMillis), new BoundedGsonDecoder(DECODER, maxInMemoryBytes, spillDir, logger))
+        .options(new Request.Options(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS))
+        .retryer(new DeadlineRetryer(remainingMillis))
+        .target(QRebelRestApi.class, apiUrl);
+  }
+
+  private static int capTimeout(int timeoutMillis, long remainingMillis) {
+    return (int) Math.max(1L, Math.min(timeoutMillis, remainingMillis));
+  }
+
+  private static QRebelRestApi create(String apiUrl, PrintStream logger, Client client, Decoder decoder) {
+    return builder(logger, client, decoder).target(QRebelRestApi.class, apiUrl);
+  }
+
+  private static Feign.Builder builder(PrintStream logger, Client client, Decoder decoder) {
     return Feign.builder()
+        .client(client)
         .errorDecoder(new ErrorBodyDecoder())
+        .queryMapEncoder(QUERY_MAP_ENCODER)
         .logLevel(Logger.Level.BASIC)
         .logger(new Logger() {
           @Override
@@ -32,13 +102,123 @@ public class QRebelRestApiClient {
             logger.format(methodTag(configKey) + format + "%n", args);
           }
         })
-        .decoder(new GsonDecoder())
-        .target(QRebelRestApi.class, apiUrl);
+        .decoder(decoder);
   }
 
-  // create a new client instance without logging and JSON parsing
+  // get a client instance without logging and JSON parsing
   public static QRebelRestApi createBasic(String apiUrl) {
-    return Feign.builder().target(QRebelRestApi.class, apiUrl);
+    return createBasic(apiUrl, DEFAULT_CLIENT);
+  }
+
+  // get a client instance without logging and JSON parsing sending the requests through the given HTTP client
+  // it is used interactively, so it fails fast instead of retrying
+  public static QRebelRestApi createBasic(String apiUrl, Client client) {
+    return BASIC_CLIENTS.computeIfAbsent(new BasicKey(client, apiUrl), key -> Feign.builder()
+        .client(client)
+        .options(new Request.Options(BASIC_CONNECT_TIMEOUT_MILLIS, BASIC_READ_TIMEOUT_MILLIS))
+        .retryer(Retryer.NEVER_RETRY)
+        .target(QRebelRestApi.class, apiUrl));
+  }
+
+  // build the cached basic client for apiUrl ahead of the first Test Connection and a gate client like the builds do,
+  // optionally open a connection too. Gate clients log to their build and stop at its deadline, so each build still
+  // creates its own, but the classes, the Feign contract of the API and the Gson adapters it needs are ready by then.
+  public static void warmUp(String apiUrl, Client client, long maxInMemoryBytes, boolean connect) throws IOException {
+    createBasic(apiUrl, client);
+    // nothing is sent through it, so it needs no spill directory
+    create(apiUrl, new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM), client, maxInMemoryBytes, null, () -> WARM_UP_TIMEOUT_MILLIS);
+    IssuesJson.GSON.getAdapter(IssuesResponse.class);
+    if (connect) {
+      // through the shared client, so the connection lands in the pool the gates use, and the
+      // body is drained instead of disconnecting so that the connection stays open
+      Request request = Request.create(Request.HttpMethod.HEAD, apiUrl, Collections.emptyMap(), null, StandardCharsets.UTF_8);
+      try (Response response = client.execute(request, new Request.Options(WARM_UP_TIMEOUT_MILLIS, WARM_UP_TIMEOUT_MILLIS))) {
+        if (response.body() != null) {
+          try (InputStream body = response.body().asInputStream()) {
+            IOUtils.copy(body, NullOutputStream.NULL_OUTPUT_STREAM);
+          }
+        }
+      }
+    }
+  }
+
+  // clients compare by identity, one per transport
+  @Value
+  private static class BasicKey {
+    private final Client client;
+    private final String apiUrl;
+  }
+
+  // turns IssuesRequest into query parameters without reflection
+  private static class IssuesRequestEncoder implements QueryMapEncoder {
+    private final QueryMapEncoder fallback = new QueryMapEncoder.Default();
+
+    @Override
+    public Map<String, Object> encode(Object object) {
+      return object instanceof IssuesRequest ? ((IssuesRequest) object).toQueryMap() : fallback.encode(object);
+    }
+  }
+
+  // caps the timeouts of every request, retries included, to the time left
+  private static class DeadlineClient implements Client {
+    private final Client delegate;
+    private final LongSupplier remainingMillis;
+
+    DeadlineClient(Client delegate, LongSupplier remainingMillis) {
+      this.delegate = delegate;
+      this.remainingMillis = remainingMillis;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+      long remaining = remainingMillis.getAsLong();
+      return delegate.execute(request, new Request.Options(capTimeout(options.connectTimeoutMillis(), remaining),
+          capTimeout(options.readTimeoutMillis(), remaining), options.isFollowRedirects()));
+    }
+  }
+
+  // backs off like Retryer.Default, but gives up when the back-off would not leave time for another attempt
+  private static class DeadlineRetryer implements Retryer {
+    private static final long PERIOD_MILLIS = 100L;
+    private static final long MAX_PERIOD_MILLIS = 1000L;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final LongSupplier remainingMillis;
+    private int attempt = 1;
+
+    DeadlineRetryer(LongSupplier remainingMillis) {
+      this.remainingMillis = remainingMillis;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+      if (attempt++ >= MAX_ATTEMPTS) {
+        throw e;
+      }
+      long interval = nextInterval(e);
+      if (remainingMillis.getAsLong() <= interval) {
+        throw e;
+      }
+      try {
+        Thread.sleep(interval);
+      }
+      catch (InterruptedException ignored) {
+        Thread.currentThread().interrupt();
+        throw e;
+      }
+    }
+
+    private long nextInterval(RetryableException e) {
+      if (e.retryAfter() != null) {
+        return Math.max(0L, Math.min(e.retryAfter().getTime() - System.currentTimeMillis(), MAX_PERIOD_MILLIS));
+      }
+      return Math.min((long) (PERIOD_MILLIS * Math.pow(1.5, attempt - 1)), MAX_PERIOD_MILLIS);
+    }
+
+    @Override
+    public Retryer clone() {
+      return new DeadlineRetryer(remainingMillis);
+    }
   }
 
   // translate known issues or extract response body otherwise
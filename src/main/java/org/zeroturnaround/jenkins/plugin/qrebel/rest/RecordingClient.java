@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Passes the requests on and keeps a copy of every exchange in a {@link TrafficArchive}.
+ * Response bodies are streamed to files in the spool directory and read back from there,
+ * so they are never held in memory.
+ */
+@RequiredArgsConstructor
+public class RecordingClient implements Client, Closeable {
+
+  private final Client delegate;
+  private final File spoolDir;
+  @Getter
+  private final TrafficArchive archive = new TrafficArchive();
+
+  @Override
+  public Response execute(Request request, Request.Options options) throws IOException {
+    long started = System.nanoTime();
+    File bodyFile = null;
+    boolean recorded = false;
+    try (Response response = delegate.execute(request, options)) {
+      if (response.body() != null) {
+        bodyFile = File.createTempFile("qrebel-traffic-", ".body", spoolDir);
+        try (InputStream body = response.body().asInputStream()) {
+          Files.copy(body, bodyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+      long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+      long bodyLength = bodyFile == null ? -1 : bodyFile.length();
+
+      archive.add(new TrafficArchive.Exchange(request.method(), request.url(), TrafficArchive.withoutAuthorization(request.headers()),
+          response.status(), response.reason(), TrafficArchive.withoutAuthorization(response.headers()),
+          bodyLength, latencyMillis), bodyFile);
+      recorded = true;
+
+      return Response.builder()
+          .status(response.status())
+          .reason(response.reason())
+          .headers(response.headers())
+          .request(request)
+          .body(bodyLength < 0 ? null : new FileInputStream(bodyFile), toLength(bodyLength))
+          .build();
+    }
+    finally {
+      // not recorded, the copy failed
+      if (!recorded && bodyFile != null) {
+        Files.deleteIfExists(bodyFile.toPath());
+      }
+    }
+  }
+
+  static Integer toLength(long bodyLength) {
+    return bodyLength < 0 || bodyLength > Integer.MAX_VALUE ? null : (int) bodyLength;
+  }
+
+  // deletes the spooled bodies, write the archive first
+  @Override
+  public void close() throws IOException {
+    archive.close();
+  }
+}
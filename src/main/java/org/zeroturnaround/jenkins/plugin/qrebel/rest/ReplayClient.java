@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+/**
+ * Serves the exchanges of a {@link TrafficArchive} instead of calling QRebel, at full speed or with the recorded latency.
+ * Each exchange is served once, exact matches on path and query are preferred over matches on the path only.
+ */
+public class ReplayClient implements Client, Closeable {
+
+  private final TrafficArchive archive;
+  private final List<TrafficArchive.Exchange> remaining;
+  private final boolean timed;
+
+  public ReplayClient(TrafficArchive archive, boolean timed) {
+    this.archive = archive;
+    this.remaining = new ArrayList<>(archive.exchanges);
+    this.timed = timed;
+  }
+
+  @Override
+  public Response execute(Request request, Request.Options options) throws IOException {
+    TrafficArchive.Exchange exchange = take(request);
+    if (timed && exchange.latencyMillis > 0) {
+      try {
+        Thread.sleep(exchange.latencyMillis);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Replay interrupted");
+      }
+    }
+    return Response.builder()
+        .status(exchange.status)
+        .reason(exchange.reason)
+        .headers(exchange.responseHeaders)
+        .request(request)
+        .body(archive.openBody(exchange), RecordingClient.toLength(exchange.bodyLength))
+        .build();
+  }
+
+  private synchronized TrafficArchive.Exchange take(Request request) throws IOException {
+    String pathAndQuery = TrafficArchive.pathAndQuery(request.url());
+    TrafficArchive.Exchange exchange = take(request.method(), pathAndQuery, true);
+    if (exchange == null) {
+      exchange = take(request.method(), pathAndQuery, false);
+    }
+    if (exchange == null) {
+      throw new IOException("No recorded QRebel exchange for " + request.method() + " " + pathAndQuery);
+    }
+    return exchange;
+  }
+
+  private TrafficArchive.Exchange take(String method, String pathAndQuery, boolean exact) {
+    String path = pathAndQuery.split("\\?", 2)[0];
+    for (Iterator<TrafficArchive.Exchange> iterator = remaining.iterator(); iterator.hasNext(); ) {
+      TrafficArchive.Exchange exchange = iterator.next();
+      boolean matches = exact ? exchange.getPathAndQuery().equals(pathAndQuery) : exchange.getPathAndQuery().split("\\?", 2)[0].equals(path);
+      if (exchange.method.equals(method) && matches) {
+        iterator.remove();
+        return exchange;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    archive.close();
+  }
+}
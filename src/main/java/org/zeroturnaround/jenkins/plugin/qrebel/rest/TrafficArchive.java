@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * HTTP exchanges with QRebel stored in a zip, used to replay a gate evaluation without the server.
+ * The exchanges are listed in a JSON entry, every response body is a separate entry with its bytes as received,
+ * so bodies are streamed from and to disk instead of being held in memory.
+ */
+public class TrafficArchive implements Closeable {
+
+  public static final String FILE_NAME = "qrebel-traffic.zip";
+
+  private static final Gson GSON = new Gson();
+  private static final Type EXCHANGES_TYPE = new TypeToken<List<Exchange>>() {}.getType();
+  private static final String EXCHANGES_ENTRY = "exchanges.json";
+  private static final String BODY_ENTRY_PREFIX = "bodies/";
+  // never stored, it is the API token
+  private static final String AUTHORIZATION_HEADER = "authorization";
+
+  final List<Exchange> exchanges = new ArrayList<>();
+  // bodies of a recording, spooled to disk until written
+  private final List<File> bodyFiles = new ArrayList<>();
+  // bodies of a read archive
+  private ZipFile zipFile;
+
+  @RequiredArgsConstructor
+  static class Exchange {
+    final String method;
+    final String url;
+    final Map<String, Collection<String>> requestHeaders;
+    final int status;
+    final String reason;
+    final Map<String, Collection<String>> responseHeaders;
+    // -1 without a body
+    final long bodyLength;
+    final long latencyMillis;
+    // zip entry of the body, assigned when added
+    String bodyEntry;
+
+    // path and query without the server, so that the archive can be replayed against any apiUrl
+    String getPathAndQuery() {
+      return pathAndQuery(url);
+    }
+  }
+
+  static String pathAndQuery(String url) {
+    URI uri = URI.create(url);
+    return uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+  }
+
+  static Map<String, Collection<String>> withoutAuthorization(Map<String, Collection<String>> headers) {
+    Map<String, Collection<String>> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    headers.forEach((name, values) -> {
+      if (name != null && !AUTHORIZATION_HEADER.equalsIgnoreCase(name)) {
+        result.put(name, new ArrayList<>(values));
+      }
+    });
+    return result;
+  }
+
+  // bodyFile is null without a body, it is deleted when the archive is closed
+  synchronized void add(Exchange exchange, File bodyFile) {
+    if (bodyFile != null) {
+      exchange.bodyEntry = BODY_ENTRY_PREFIX + bodyFiles.size();
+      bodyFiles.add(bodyFile);
+    }
+    exchanges.add(exchange);
+  }
+
+  // the recorded body or null, the caller closes it
+  synchronized InputStream openBody(Exchange exchange) throws IOException {
+    if (exchange.bodyEntry == null || zipFile == null) {
+      return null;
+    }
+    ZipEntry entry = zipFile.getEntry(exchange.bodyEntry);
+    if (entry == null) {
+      throw new IOException("Corrupted QRebel traffic archive, no " + exchange.bodyEntry);
+    }
+    return zipFile.getInputStream(entry);
+  }
+
+  public synchronized int size() {
+    return exchanges.size();
+  }
+
+  public synchronized void write(File file) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+      out.putNextEntry(new ZipEntry(EXCHANGES_ENTRY));
+      Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+      GSON.toJson(exchanges, EXCHANGES_TYPE, writer);
+      writer.flush();
+      out.closeEntry();
+      for (int i = 0; i < bodyFiles.size(); i++) {
+        out.putNextEntry(new ZipEntry(BODY_ENTRY_PREFIX + i));
+        Files.copy(bodyFiles.get(i).toPath(), out);
+        out.closeEntry();
+      }
+    }
+  }
+
+  // keeps the file open for the bodies until closed
+  public static TrafficArchive read(File file) throws IOException {
+    TrafficArchive archive = new TrafficArchive();
+    archive.zipFile = new ZipFile(file);
+    try {
+      ZipEntry entry = archive.zipFile.getEntry(EXCHANGES_ENTRY);
+      if (entry == null) {
+        throw new IOException("Corrupted QRebel traffic archive " + file);
+      }
+      try (Reader reader = new InputStreamReader(archive.zipFile.getInputStream(entry), StandardCharsets.UTF_8)) {
+        List<Exchange> exchanges = GSON.fromJson(reader, EXCHANGES_TYPE);
+        if (exchanges == null) {
+          throw new IOException("Empty QRebel traffic archive " + file);
+        }
+        archive.exchanges.addAll(exchanges);
+      }
+      return archive;
+    }
+    catch (JsonParseException e) {
+      archive.close();
+      throw new IOException("Corrupted QRebel traffic archive " + file, e);
+    }
+    catch (IOException | RuntimeException e) {
+      archive.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    for (File bodyFile : bodyFiles) {
+      Files.deleteIfExists(bodyFile.toPath());
+    }
+    bodyFiles.clear();
+    if (zipFile != null) {
+      zipFile.close();
+      zipFile = null;
+    }
+  }
+}
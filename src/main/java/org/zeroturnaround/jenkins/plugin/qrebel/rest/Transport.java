@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import feign.Client;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * HTTP transports the REST client can send its requests through.
+ * The OkHttp based ones share one connection pool, so concurrent requests to the same server
+ * are multiplexed over a single HTTP/2 connection. The clients are owned by {@code QRebelGlobalConfiguration}.
+ */
+public enum Transport {
+  // one request per connection at a time, HttpURLConnection
+  URL_CONNECTION,
+  // HTTP/2 negotiated over TLS with a fallback to HTTP/1.1
+  HTTP2,
+  // cleartext HTTP/2 without negotiation, for servers known to support it
+  H2C;
+
+  // cancelling the task making a request cancels its call, which closes the stream or connection
+  private static final OkHttpClient SHARED_OKHTTP = new OkHttpClient.Builder()
+      .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+      .addInterceptor(chain -> {
+        Cancellation.onCancel(chain.call()::cancel);
+        return chain.proceed(chain.request());
+      })
+      .build();
+
+  // a new client, thread-safe so that it can be shared by all requests
+  public Client createClient() {
+    switch (this) {
+      case HTTP2:
+        return new feign.okhttp.OkHttpClient(SHARED_OKHTTP.newBuilder().protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)).build());
+      case H2C:
+        return new feign.okhttp.OkHttpClient(SHARED_OKHTTP.newBuilder().protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE)).build());
+      default:
+        return new UrlConnectionClient();
+    }
+  }
+}
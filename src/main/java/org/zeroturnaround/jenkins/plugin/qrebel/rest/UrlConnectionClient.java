@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+/**
+ * HttpURLConnection client like feign's default one, except that the connection
+ * is closed when the task making the request is cancelled, see {@link Cancellation}
+ */
+class UrlConnectionClient implements Client {
+
+  @Override
+  public Response execute(Request request, Request.Options options) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(request.url()).openConnection();
+    Cancellation.onCancel(connection::disconnect);
+    connection.setConnectTimeout(options.connectTimeoutMillis());
+    connection.setReadTimeout(options.readTimeoutMillis());
+    connection.setAllowUserInteraction(false);
+    connection.setInstanceFollowRedirects(options.isFollowRedirects());
+    connection.setRequestMethod(request.httpMethod().name());
+    for (Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+      for (String value : header.getValue()) {
+        connection.addRequestProperty(header.getKey(), value);
+      }
+    }
+    byte[] body = request.body();
+    if (body != null) {
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(body.length);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body);
+      }
+    }
+
+    int status = connection.getResponseCode();
+    if (status < 0) {
+      throw new IOException("Invalid status " + status + " from " + request.url());
+    }
+    Map<String, Collection<String>> headers = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+      // the status line has a null key
+      if (header.getKey() != null) {
+        headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+      }
+    }
+    int length = connection.getContentLength();
+    InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+    return Response.builder()
+        .status(status)
+        .reason(connection.getResponseMessage())
+        .headers(headers)
+        .request(request)
+        .body(stream, length < 0 ? null : length)
+        .build();
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Responses shared by the tests
+ */
+public final class Fixtures {
+
+  private Fixtures() {
+  }
+
+  // the analysis of the test application as served by QRebel
+  public static String getIssuesJson() {
+    try {
+      return IOUtils.toString(Fixtures.class.getResourceAsStream("issues.json"), StandardCharsets.UTF_8);
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
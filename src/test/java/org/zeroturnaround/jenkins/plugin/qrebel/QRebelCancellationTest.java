@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesRequest;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApi;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.QRebelRestApiClient;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Transport;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Cancelling the QRebel tasks of aborted builds closes their stalled requests, with every transport
+ */
+@RunWith(Parameterized.class)
+public class QRebelCancellationTest {
+
+  private static final String APP_NAME = "foobar";
+  private static final int BUILDS = 3;
+  // the server never answers, so ending at all shows the requests were closed, the bound only stops a hung test
+  private static final long CANCELLATION_TIMEOUT_SECONDS = 60L;
+
+  private final Transport transport;
+  private final MockWebServer server = new MockWebServer();
+  private final CountDownLatch released = new CountDownLatch(1);
+  private final PrintStream logger = new PrintStream(new NullOutputStream());
+
+  public QRebelCancellationTest(Transport transport) {
+    this.transport = transport;
+  }
+
+  @Parameterized.Parameters(name = "{0}")
+  public static Transport[] transports() {
+    return Transport.values();
+  }
+
+  @After
+  public void shutdown() throws IOException {
+    released.countDown();
+    server.shutdown();
+  }
+
+  @Test
+  public void cancelledTasksCloseStalledRequests() throws Exception {
+    if (transport == Transport.H2C) {
+      server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+    }
+    // the server never answers while the test runs
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        released.await();
+        return new MockResponse();
+      }
+    });
+    server.start();
+
+    QRebelRestApi restApi = QRebelRestApiClient.create(server.url("/api").toString(), logger, transport.createClient());
+    IssuesRequest request = IssuesRequest.builder()
+        .targetBuild("2.0.6RC3")
+        .slowRequestsAllowed(0L)
+        .excessiveIOAllowed(0L)
+        .exceptionsAllowed(0L)
+        .jenkinsPluginVersion("test")
+        .build();
+    // counted down when the task itself ends, not when its future is cancelled
+    CountDownLatch finished = new CountDownLatch(BUILDS);
+    List<Future<?>> tasks = new ArrayList<>();
+    for (int i = 0; i < BUILDS; i++) {
+      tasks.add(IoExecutor.submit(() -> {
+        try {
+          return restApi.getIssues("token", APP_NAME, request);
+        }
+        finally {
+          finished.countDown();
+        }
+      }));
+    }
+    for (int i = 0; i < BUILDS; i++) {
+      server.takeRequest();
+    }
+
+    tasks.forEach(task -> task.cancel(true));
+    assertTrue(transport + " requests still open", finished.await(CANCELLATION_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    // and none was retried
+    assertEquals(BUILDS, server.getRequestCount());
+  }
+}
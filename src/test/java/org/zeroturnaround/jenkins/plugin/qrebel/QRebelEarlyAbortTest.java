@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.SleepBuilder;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+
+public class QRebelEarlyAbortTest {
+
+  private static final String APP_NAME = "foobar";
+  private static final String TARGET_BUILD = "2.0.6RC3";
+  private static final String TARGET_VERSION = "1";
+  private static final String API_TOKEN = "correct-key";
+  private static final String ISSUES_URL = "/api/applications/" + APP_NAME + "/issues/.*";
+  private static final long TOO_MANY_SLOW_REQUESTS = 14L;
+  private static final long IGNORE_ALL_SLOW_REQUESTS = 15L;
+  // only bounds a build that is never aborted, the aborts are driven by the responses
+  private static final long LOAD_TEST_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final long ONE_SECOND_POLL = 1L;
+  private static final long SLA_GLOBAL_LIMIT = 5000L;
+  private static final String CHANGED_ENTRY_POINTS_JSON = "{\"issuesCount\": {\"DURATION\": 15, \"EXCEPTIONS\": 2}, "
+      + "\"entryPoints\": [{\"name\": \"GET /actuator/info\", \"duration\": {\"slowestPercentile\": 6000}}], \"cursor\": \"c2\"}";
+  private static final String PASSING_JSON = "{\"issuesCount\": {\"DURATION\": 0, \"EXCEPTIONS\": 0}, \"entryPoints\": []}";
+  private static final String EXCEEDING_SCENARIO = "exceeding";
+  private static final String UNNAMED_SLOW_ENTRY_POINT_JSON = "{\"issuesCount\": {\"DURATION\": 15, \"EXCEPTIONS\": 2}, "
+      + "\"entryPoints\": [{\"name\": \"GET /actuator/info\", \"duration\": {\"slowestPercentile\": 100}}, {\"duration\": {\"slowestPercentile\": 6000}}]}";
+
+  @Rule
+  public JenkinsRule j = new JenkinsRule();
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+  @Test
+  public void exceededLoadTestAborted() throws Exception {
+    // the first poll passes, the second exceeds the gate
+    stubFor(get(urlMatching(ISSUES_URL)).inScenario(EXCEEDING_SCENARIO).whenScenarioStateIs(Scenario.STARTED)
+        .willReturn(ok().withBody(PASSING_JSON)).willSetStateTo(EXCEEDING_SCENARIO));
+    stubFor(get(urlMatching(ISSUES_URL)).inScenario(EXCEEDING_SCENARIO).whenScenarioStateIs(EXCEEDING_SCENARIO)
+        .willReturn(ok().withBody(getIssuesJson())));
+    FreeStyleBuild build = j.assertBuildStatus(Result.ABORTED, createProject(TOO_MANY_SLOW_REQUESTS).scheduleBuild2(0));
+    j.assertLogContains("QRebel Performance Gate exceeded during the build: 15 slow requests", build);
+    verify(2, getRequestedFor(urlMatching(ISSUES_URL)));
+  }
+
+  @Test
+  public void stalledPollGivesUpBeforeTheNextOne() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).inScenario(EXCEEDING_SCENARIO).whenScenarioStateIs(Scenario.STARTED)
+        .willReturn(ok().withBody(getIssuesJson()).withFixedDelay((int) LOAD_TEST_MILLIS)).willSetStateTo(EXCEEDING_SCENARIO));
+    stubFor(get(urlMatching(ISSUES_URL)).inScenario(EXCEEDING_SCENARIO).whenScenarioStateIs(EXCEEDING_SCENARIO)
+        .willReturn(ok().withBody(getIssuesJson())));
+    FreeStyleBuild build = j.assertBuildStatus(Result.ABORTED, createProject(TOO_MANY_SLOW_REQUESTS).scheduleBuild2(0));
+    j.assertLogContains("QRebel early abort check failed", build);
+    j.assertLogContains("QRebel Performance Gate exceeded during the build: 15 slow requests", build);
+  }
+
+  @Test
+  public void passingLoadTestNotAborted() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).willReturn(ok().withBody(getIssuesJson())));
+    FreeStyleProject project = createProject(IGNORE_ALL_SLOW_REQUESTS);
+    project.getBuildersList().replace(new SleepBuilder(TimeUnit.SECONDS.toMillis(3)));
+    j.buildAndAssertSuccess(project);
+  }
+
+  @Test
+  public void laterPollsFetchOnlyChangedEntryPoints() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).withQueryParam("since", absent())
+        .willReturn(ok().withBody(getIssuesJson().replaceFirst("\\{", "{\"cursor\": \"c1\","))));
+    stubFor(get(urlMatching(ISSUES_URL)).withQueryParam("since", matching(".+"))
+        .willReturn(ok().withBody(CHANGED_ENTRY_POINTS_JSON)));
+    FreeStyleBuild build = j.assertBuildStatus(Result.ABORTED, createProject(IGNORE_ALL_SLOW_REQUESTS, SLA_GLOBAL_LIMIT, 1).scheduleBuild2(0));
+    j.assertLogContains("slowest duration 6000 ms exceeded the SLA global limit of 5000 ms", build);
+    verify(getRequestedFor(urlMatching(ISSUES_URL)).withQueryParam("since", equalTo("c1")));
+  }
+
+  @Test
+  public void unnamedSlowEntryPointAbortsBuild() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).willReturn(ok().withBody(UNNAMED_SLOW_ENTRY_POINT_JSON)));
+    FreeStyleBuild build = j.assertBuildStatus(Result.ABORTED, createProject(IGNORE_ALL_SLOW_REQUESTS, SLA_GLOBAL_LIMIT, 1).scheduleBuild2(0));
+    j.assertLogContains("slowest duration 6000 ms exceeded the SLA global limit of 5000 ms", build);
+  }
+
+  private FreeStyleProject createProject(long slowRequestsAllowed) throws IOException {
+    return createProject(slowRequestsAllowed, 0L, QRebelEarlyAbort.DEFAULT_SLA_CONFIRMATIONS);
+  }
+
+  private FreeStyleProject createProject(long slowRequestsAllowed, long slaGlobalLimit, int slaConfirmations) throws IOException {
+    FreeStyleProject project = j.createFreeStyleProject();
+    project.getBuildWrappersList().add(new QRebelEarlyAbort(ONE_SECOND_POLL, slaConfirmations));
+    project.getBuildersList().add(new SleepBuilder(LOAD_TEST_MILLIS));
+    project.getPublishersList().add(new QRebelPublisher(APP_NAME, TARGET_BUILD, TARGET_VERSION, null, null,
+        API_TOKEN, wireMockRule.baseUrl() + "/api", ComparisonStrategy.THRESHOLD.name(), slowRequestsAllowed, 0L, 2L, slaGlobalLimit,
+        true, true, true));
+    return project;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Duration;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.EntryPoint;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.gson.Gson;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.queue.QueueTaskFuture;
+
+/**
+ * Runs many gated builds at once against a QRebel stand-in injecting latency, errors and large bodies.
+ * Slow and timing-dependent, so it only runs with the performance profile: mvn test -Pperformance
+ * Sizes and budgets can be changed with system properties, e.g. -Dqrebel.stress.builds=100
+ */
+public class QRebelStressTest {
+
+  private static final int BUILDS = Integer.getInteger("qrebel.stress.builds", 24);
+  private static final int MIN_LATENCY_MILLIS = Integer.getInteger("qrebel.stress.minLatency", 200);
+  private static final int MAX_LATENCY_MILLIS = Integer.getInteger("qrebel.stress.maxLatency", 800);
+  private static final int LARGE_BODY_ENTRY_POINTS = Integer.getInteger("qrebel.stress.largeBodyEntryPoints", 50000);
+  private static final long P99_BUDGET_MILLIS = Long.getLong("qrebel.stress.p99Budget", 15000L);
+  private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("qrebel.stress.minThroughput", "0.5"));
+  // an executor and a stand-in server thread per build, the QRebel I/O pool and some slack
+  private static final int EXTRA_THREADS_BUDGET = Integer.getInteger("qrebel.stress.extraThreadsBudget", BUILDS * 2 + IoExecutor.THREADS + 16);
+  private static final long HEAP_GROWTH_BUDGET_BYTES = Long.getLong("qrebel.stress.heapGrowthBudget", 256L * 1024 * 1024);
+
+  private static final Logger LOGGER = Logger.getLogger(QRebelStressTest.class.getName());
+  private static final String API_TOKEN = "correct-key";
+  private static final String TARGET_BUILD = "2.0.6RC3";
+  private static final String SLOW_APP = "slow";
+  private static final String LARGE_APP = "large";
+  private static final String FAILING_APP = "failing";
+
+  @Rule
+  public JenkinsRule j = new JenkinsRule();
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort().containerThreads(BUILDS + 10));
+
+  @Test
+  public void concurrentGatesStayWithinBudgets() throws Exception {
+    stubApp(SLOW_APP, ok().withBody(getIssuesJson()).withUniformRandomDelay(MIN_LATENCY_MILLIS, MAX_LATENCY_MILLIS));
+    stubApp(LARGE_APP, ok().withBody(getLargeIssuesJson()).withUniformRandomDelay(MIN_LATENCY_MILLIS, MAX_LATENCY_MILLIS));
+    stubApp(FAILING_APP, aResponse().withStatus(503).withBody("Hub overloaded").withFixedDelay(MAX_LATENCY_MILLIS));
+    j.jenkins.setNumExecutors(BUILDS);
+
+    List<FreeStyleProject> projects = new ArrayList<>();
+    for (int i = 0; i < BUILDS; i++) {
+      projects.add(createGatedProject(appFor(i)));
+    }
+
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long heapBefore = usedHeapAfterGc(memory);
+    int threadsBefore = threads.getThreadCount();
+    threads.resetPeakThreadCount();
+
+    long started = System.nanoTime();
+    List<QueueTaskFuture<FreeStyleBuild>> futures = new ArrayList<>();
+    for (FreeStyleProject project : projects) {
+      futures.add(project.scheduleBuild2(0));
+    }
+    // the gate is the only step of these builds
+    List<Long> gateLatencies = new ArrayList<>();
+    for (int i = 0; i < BUILDS; i++) {
+      FreeStyleBuild build = futures.get(i).get();
+      if (FAILING_APP.equals(appFor(i))) {
+        assertEquals(Result.FAILURE, build.getResult());
+      }
+      else {
+        assertEquals(Result.SUCCESS, build.getResult());
+        gateLatencies.add(build.getDuration());
+      }
+    }
+    double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+    int extraThreads = threads.getPeakThreadCount() - threadsBefore;
+    long heapGrowth = usedHeapAfterGc(memory) - heapBefore;
+    double throughput = BUILDS / elapsedSeconds;
+    long p50 = percentile(gateLatencies, 0.50);
+    long p99 = percentile(gateLatencies, 0.99);
+
+    LOGGER.info(String.format("QRebel stress: %d builds in %.2f s, throughput %.2f builds/s, gate latency p50 %d ms p99 %d ms, extra threads %d, heap growth %d KB",
+        BUILDS, elapsedSeconds, throughput, p50, p99, extraThreads, heapGrowth / 1024));
+
+    assertTrue("p99 gate latency " + p99 + " ms over budget", p99 <= P99_BUDGET_MILLIS);
+    assertTrue("throughput " + throughput + " builds/s under budget", throughput >= MIN_THROUGHPUT);
+    assertTrue(extraThreads + " extra threads over budget", extraThreads <= EXTRA_THREADS_BUDGET);
+    assertTrue("heap growth " + heapGrowth + " bytes over budget", heapGrowth <= HEAP_GROWTH_BUDGET_BYTES);
+  }
+
+  // one in eight builds hits a failing hub, one in four gets a large body
+  private static String appFor(int index) {
+    if (index % 8 == 0) {
+      return FAILING_APP;
+    }
+    return index % 4 == 1 ? LARGE_APP : SLOW_APP;
+  }
+
+  private FreeStyleProject createGatedProject(String appName) throws IOException {
+    FreeStyleProject project = j.createFreeStyleProject();
+    project.getPublishersList().add(new QRebelPublisher(appName, TARGET_BUILD, null, null, null,
+        API_TOKEN, wireMockRule.baseUrl() + "/api", ComparisonStrategy.THRESHOLD.name(), Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 0L,
+        true, true, true));
+    return project;
+  }
+
+  private static void stubApp(String appName, ResponseDefinitionBuilder response) {
+    stubFor(get(urlMatching("/api/applications/" + appName + "/issues/.*")).willReturn(response));
+  }
+
+  private static long usedHeapAfterGc(MemoryMXBean memory) {
+    System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+
+  private static long percentile(List<Long> values, double percentile) {
+    List<Long> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+    int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+    return sorted.get(Math.max(0, index));
+  }
+
+  private String getLargeIssuesJson() throws IOException {
+    IssuesResponse qRData = new Gson().fromJson(getIssuesJson(), IssuesResponse.class);
+    List<EntryPoint> entryPoints = new ArrayList<>();
+    for (int i = 0; i < LARGE_BODY_ENTRY_POINTS; i++) {
+      entryPoints.add(new EntryPoint("GET /endpoint/" + i, new Duration((long) i % 1000)));
+    }
+    return new Gson().toJson(qRData.withEntryPoints(entryPoints));
+  }
+}
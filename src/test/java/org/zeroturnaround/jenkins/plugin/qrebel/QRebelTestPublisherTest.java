@@ -22,24 +22,51 @@ import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.zeroturnaround.jenkins.plugin.qrebel.ComparisonStrategy.BASELINE;
 import static org.zeroturnaround.jenkins.plugin.qrebel.ComparisonStrategy.DEFAULT_BASELINE;
 import static org.zeroturnaround.jenkins.plugin.qrebel.ComparisonStrategy.THRESHOLD;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockFolder;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Duration;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.EntryPoint;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesCount;
 import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.Transport;
 import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import hudson.matrix.AxisList;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixProject;
+import hudson.matrix.TextAxis;
 import hudson.model.Build;
 import hudson.model.FreeStyleProject;
 import hudson.model.Result;
 import hudson.tasks.Publisher;
+import hudson.util.FormValidation;
 
 public class QRebelTestPublisherTest {
 
@@ -62,6 +89,12 @@ public class QRebelTestPublisherTest {
   private static final long SLOWEST_REQUEST = 3770L;
   private static final long GLOBAL_LIMIT_BELOW_FASTEST = FASTEST_REQUEST - 1L;
   private static final long GLOBAL_LIMIT_ABOVE_SLOWEST = SLOWEST_REQUEST + 1L;
+  private static final int TWO_SAMPLES = 2;
+  private static final int THREE_SAMPLES = 3;
+  private static final long ONE_SECOND_INTERVAL = 1L;
+  private static final int SLOW_RESPONSE_MILLIS = 5000;
+  private static final long SMALL_RESPONSE_LIMIT = 100L;
+  private static final String NOISY_SCENARIO = "noisy";
 
   @Rule
   public JenkinsRule j = new JenkinsRule();
@@ -264,6 +297,320 @@ public class QRebelTestPublisherTest {
     j.assertLogContains("Build failed because QRebel found regressions ", build);
   }
 
+  @Test
+  public void gateHistoryServedAsJson() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    Build build = buildAndAssertFailure(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS));
+    HttpURLConnection connection = openHistory(build, "json", null);
+    assertEquals(200, connection.getResponseCode());
+    String body = IOUtils.toString(connection.getInputStream());
+    assertTrue(body.contains("\"verdict\":\"FAILED\""));
+    assertTrue(body.contains("\"slowestDuration\":" + SLOWEST_REQUEST));
+  }
+
+  @Test
+  public void gateHistoryNotModified() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    Build build = buildAndAssertSuccess(withDefault());
+    String eTag = openHistory(build, "csv", null).getHeaderField("ETag");
+    assertNotNull(eTag);
+    assertEquals(304, openHistory(build, "csv", eTag).getResponseCode());
+    assertEquals(304, openHistory(build, "csv", "W/" + eTag).getResponseCode());
+    assertEquals(304, openHistory(build, "csv", "\"other\", " + eTag).getResponseCode());
+    assertEquals(304, openHistory(build, "csv", "*").getResponseCode());
+  }
+
+  @Test
+  public void gateHistoryETagPerFormatAndQuery() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    Build build = buildAndAssertSuccess(withDefault());
+    String eTag = openHistory(build, "csv", null).getHeaderField("ETag");
+    assertEquals(200, openHistory(build, "json", eTag).getResponseCode());
+    assertEquals(200, openHistory(build, "csv", "since=0&limit=10", eTag).getResponseCode());
+    assertEquals(200, openHistory(build, "csv", "limit=5", eTag).getResponseCode());
+  }
+
+  @Test
+  public void gateHistoryJournalFoldedIntoSnapshot() throws Exception {
+    FreeStyleProject project = j.createFreeStyleProject();
+    GateHistory history = GateHistory.forJob(project);
+    File journal = new File(project.getRootDir(), GateHistory.JOURNAL_FILE_NAME);
+    for (int number = 1; number < GateHistory.COMPACT_INTERVAL; number++) {
+      history.append(GateSummary.builder().number(number).verdict(GateVerdict.PASSED).build());
+    }
+    assertTrue(journal.exists());
+    assertFalse(new File(project.getRootDir(), GateHistory.FILE_NAME).exists());
+
+    history.append(GateSummary.builder().number(GateHistory.COMPACT_INTERVAL).verdict(GateVerdict.PASSED).build());
+    assertFalse(journal.exists());
+    assertTrue(new File(project.getRootDir(), GateHistory.FILE_NAME).exists());
+    assertEquals(GateHistory.COMPACT_INTERVAL, history.query(null, GateHistory.MAX_ENTRIES).size());
+  }
+
+  @Test
+  public void allSamplesQueried() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    buildAndAssertSuccess(withDefault().withSamples(THREE_SAMPLES));
+    verify(THREE_SAMPLES, getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")));
+  }
+
+  @Test
+  public void noisySampleIgnoredByMedian() throws Exception {
+    stubNoisySamples();
+    buildAndAssertSuccess(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS).withSamples(THREE_SAMPLES).withSampleInterval(ONE_SECOND_INTERVAL));
+  }
+
+  @Test
+  public void noisySampleIgnoredByLowerMedianOfTwo() throws Exception {
+    stubNoisySamples();
+    buildAndAssertSuccess(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS).withSamples(TWO_SAMPLES).withSampleInterval(ONE_SECOND_INTERVAL));
+  }
+
+  @Test
+  public void noisySampleFailsWithQuorumOfOne() throws Exception {
+    stubNoisySamples();
+    Build build = buildAndAssertFailure(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS).withSamples(THREE_SAMPLES).withSampleInterval(ONE_SECOND_INTERVAL).withQuorum(1));
+    j.assertLogContains("3 of 3 samples received, 1 exceeded the Performance Gate", build);
+  }
+
+  @Test
+  public void laterSamplesAskOnlyForChanges() throws Exception {
+    stubFor(get(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")).withQueryParam("since", absent())
+        .willReturn(ok().withBody(getIssuesJson().replaceFirst("\\{", "{\"cursor\": \"c1\","))));
+    stubFor(get(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")).withQueryParam("since", matching(".+"))
+        .willReturn(ok().withBody("{\"issuesCount\": {\"DURATION\": 15, \"EXCEPTIONS\": 2}, \"entryPoints\": [], \"cursor\": \"c2\"}")));
+    Build build = buildAndAssertSuccess(withDefault().withSamples(TWO_SAMPLES).withSampleInterval(ONE_SECOND_INTERVAL));
+    verify(getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")).withQueryParam("since", equalTo("c1")));
+    j.assertLogContains("2 of 2 samples received", build);
+  }
+
+  @Test
+  public void matrixConfigurationsShareIdenticalQuery() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    MatrixProject project = j.jenkins.createProject(MatrixProject.class, "matrix");
+    project.setAxes(new AxisList(new TextAxis("browser", "chrome", "firefox")));
+    project.getPublishersList().add(withDefault());
+    MatrixBuild build = j.buildAndAssertSuccess(project);
+    j.assertLogContains("QRebel Performance Gate failed in 0 of 2 configurations", build);
+    verify(1, getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")));
+  }
+
+  @Test
+  public void matrixFailuresRolledUpToParent() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    MatrixProject project = j.jenkins.createProject(MatrixProject.class, "matrix");
+    project.setAxes(new AxisList(new TextAxis("browser", "chrome", "firefox")));
+    project.getPublishersList().add(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS));
+    MatrixBuild build = j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0));
+    j.assertLogContains("QRebel Performance Gate failed in 2 of 2 configurations", build);
+    j.assertLogContains("browser=chrome: FAILED", build);
+  }
+
+  @Test
+  public void abortedMatrixBatchReleased() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()).withFixedDelay(SLOW_RESPONSE_MILLIS));
+    MatrixProject project = j.jenkins.createProject(MatrixProject.class, "matrix");
+    project.setAxes(new AxisList(new TextAxis("browser", "chrome", "firefox")));
+    project.getPublishersList().add(withDefault());
+    MatrixBuild build = project.scheduleBuild2(0).waitForStart();
+    while (MatrixGateBatch.get(build) == null) {
+      Thread.sleep(10);
+    }
+    build.getExecutor().interrupt();
+    j.assertBuildStatus(Result.ABORTED, j.waitForCompletion(build));
+    assertNull(MatrixGateBatch.get(build));
+  }
+
+  @Test
+  public void recordedTrafficReplayedWithoutHub() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    QRebelPublisher publisher = withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS).withTrafficMode(TrafficMode.RECORD.name());
+    Build recorded = buildAndAssertFailure(publisher);
+    j.assertLogContains("Recorded 1 QRebel exchanges", recorded);
+    assertNotNull(recorded.getAction(TrafficArchiveAction.class));
+    // the spooled bodies are in the archive only
+    assertArrayEquals(new String[0], recorded.getRootDir().list((dir, name) -> name.endsWith(".body")));
+
+    wireMockRule.resetAll();
+    FreeStyleProject project = (FreeStyleProject) recorded.getParent();
+    project.getPublishersList().replace(publisher.withTrafficMode(TrafficMode.REPLAY.name()).withReplayBuild(recorded.getNumber()));
+    Build replayed = j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0));
+    j.assertLogContains("Build failed because QRebel found regressions ", replayed);
+    verify(0, getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")));
+    j.assertLogContains("QRebel gate history not recorded for a replayed build", replayed);
+    assertNull(GateHistory.forJob(project).get(replayed.getNumber()));
+    assertEquals(recorded.getNumber(), GateIndex.getLatest(project).getNumber());
+  }
+
+  @Test
+  public void oversizedResponseSpilledToDisk() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    QRebelGlobalConfiguration.get().setMaxInMemoryResponseBytes(SMALL_RESPONSE_LIMIT);
+    Build build = buildAndAssertFailure(withDefault().withSlaGlobalLimit(SLOWEST_REQUEST));
+    j.assertLogContains("spilled to", build);
+    j.assertLogContains("slowest endpoint time(ms): " + SLOWEST_REQUEST, build);
+  }
+
+  @Test
+  public void repeatedConnectionChecksCached() throws Exception {
+    stubFor(get(urlMatching("/api/applications/" + APP_NAME + "/baselines/default")).willReturn(ok()));
+    FreeStyleProject project = j.createFreeStyleProject();
+    QRebelPublisher.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(QRebelPublisher.DescriptorImpl.class);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(FormValidation.Kind.OK, descriptor.doTestConnection(APP_NAME, API_TOKEN, wireMockRule.baseUrl() + "/api", project).kind);
+    }
+    verify(1, getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/baselines/default")));
+  }
+
+  @Test
+  public void connectionChecksCachedPerTransport() throws Exception {
+    stubFor(get(urlMatching("/api/applications/" + APP_NAME + "/baselines/default")).willReturn(ok()));
+    FreeStyleProject project = j.createFreeStyleProject();
+    QRebelPublisher.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(QRebelPublisher.DescriptorImpl.class);
+    String apiUrl = wireMockRule.baseUrl() + "/api";
+    assertEquals(FormValidation.Kind.OK, descriptor.doTestConnection(APP_NAME, API_TOKEN, apiUrl, project).kind);
+    QRebelGlobalConfiguration.get().setTransports(Collections.singletonList(new HubTransport(apiUrl, Transport.HTTP2.name())));
+    assertEquals(FormValidation.Kind.OK, descriptor.doTestConnection(APP_NAME, API_TOKEN, apiUrl, project).kind);
+    verify(2, getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/baselines/default")));
+  }
+
+  @Test
+  public void endpointDurationsServedFromColumnStore() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    Build build = buildAndAssertSuccess(withDefault());
+    j.buildAndAssertSuccess((FreeStyleProject) build.getProject());
+    URL url = new URL(j.getURL(), build.getParent().getUrl() + GateHistoryAction.URL_NAME + "/durations?endpoint="
+        + URLEncoder.encode("GET /actuator/health", "UTF-8"));
+    String body = IOUtils.toString(url.openStream());
+    assertTrue(body.contains("{\"number\":1,\"slowestPercentile\":3354}"));
+    assertTrue(body.contains("{\"number\":2,\"slowestPercentile\":3354}"));
+  }
+
+  @Test
+  public void durationsKeptForBuildsFinishingOutOfOrderAndAfterRename() throws Exception {
+    FreeStyleProject project = j.createFreeStyleProject("durations");
+    DurationStore store = DurationStore.forJob(project);
+    assertTrue(store.append(2, Collections.singletonList(new EntryPoint("GET /", new Duration(20L)))));
+    assertTrue(store.append(1, Collections.singletonList(new EntryPoint("GET /", new Duration(10L)))));
+
+    project.renameTo("renamed");
+    assertTrue(store.append(3, Collections.singletonList(new EntryPoint("GET /", new Duration(30L)))));
+    assertTrue(new File(project.getRootDir(), DurationStore.DIR_NAME).isDirectory());
+    assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(store.query("GET /", DurationStore.MAX_LIMIT).keySet()));
+  }
+
+  @Test
+  public void regressionLocatedFromStoredHistory() throws Exception {
+    FreeStyleProject project = j.createFreeStyleProject();
+    project.getPublishersList().add(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS));
+    stubIssuesApi(ok().withBody(getCleanIssuesJson()));
+    j.buildAndAssertSuccess(project);
+    j.buildAndAssertSuccess(project);
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    for (int i = 0; i < 3; i++) {
+      j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0));
+    }
+
+    // in the background, as started from the history page
+    RegressionLocator.Result result = RegressionSearch.start(project, project.getPublishersList().get(QRebelPublisher.class), null, null).getResult();
+    assertEquals(Integer.valueOf(3), result.getFirstRegressed());
+    assertEquals(0, result.getHubQueries());
+    verify(5, getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")));
+  }
+
+  @Test
+  public void regressionLocatorQueriesBuildsWithoutHistory() throws Exception {
+    FreeStyleProject project = j.createFreeStyleProject();
+    QRebelPublisher publisher = withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS);
+    project.getPublishersList().add(publisher);
+    stubIssuesApi(ok().withBody(getCleanIssuesJson()));
+    j.buildAndAssertSuccess(project);
+    // builds #2 to #4 have no stored gate result
+    project.getPublishersList().remove(QRebelPublisher.class);
+    for (int i = 0; i < 3; i++) {
+      j.buildAndAssertSuccess(project);
+    }
+    project.getPublishersList().add(publisher);
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0));
+
+    RegressionLocator.Result result = new RegressionLocator(project, publisher, Deadline.after(RegressionSearch.DEFAULT_TIMEOUT_SECONDS)).locate(null, null);
+    assertEquals(Integer.valueOf(2), result.getFirstRegressed());
+    assertEquals(2, result.getHubQueries());
+    assertEquals(RegressionLocator.QREBEL, result.getSteps().get(2).getSource());
+    verify(4, getRequestedFor(urlMatching("/api/applications/" + APP_NAME + "/issues/.*")));
+  }
+
+  @Test
+  public void viewDashboardListsLatestGates() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    Build build = buildAndAssertFailure(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS));
+    String body = IOUtils.toString(new URL(j.getURL(), "view/all/" + GateDashboardAction.URL_NAME + "/json").openStream());
+    assertTrue(body.contains("\"job\":\"" + build.getParent().getFullDisplayName() + "\""));
+    assertTrue(body.contains("\"verdict\":\"FAILED\""));
+
+    JenkinsRule.WebClient webClient = j.createWebClient();
+    webClient.getOptions().setJavaScriptEnabled(false);
+    assertTrue(webClient.goTo("view/all/" + GateDashboardAction.URL_NAME + "/").asText().contains("1 gated jobs, 1 failing"));
+  }
+
+  @Test
+  public void viewDashboardListsGatesInNestedFolders() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    MockFolder outer = j.createFolder("outer");
+    MockFolder inner = outer.createProject(MockFolder.class, "inner");
+    FreeStyleProject project = inner.createProject(FreeStyleProject.class, "nested");
+    project.getPublishersList().add(withDefault().withSlowRequestsAllowed(TOO_MANY_SLOW_REQUESTS));
+    j.assertBuildStatus(Result.FAILURE, project.scheduleBuild2(0));
+
+    assertTrue(GateIndex.contains(outer));
+    String body = IOUtils.toString(new URL(j.getURL(), "view/all/" + GateDashboardAction.URL_NAME + "/json").openStream());
+    assertTrue(body.contains("\"job\":\"" + project.getFullDisplayName() + "\""));
+  }
+
+  @Test
+  public void gateIndexFollowsRenameAndDelete() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    MockFolder folder = j.createFolder("folder");
+    FreeStyleProject project = folder.createProject(FreeStyleProject.class, "project");
+    project.getPublishersList().add(withDefault());
+    j.buildAndAssertSuccess(project);
+
+    folder.renameTo("renamed");
+    assertEquals("renamed/project", project.getFullName());
+    assertNotNull(GateIndex.getLatest(project));
+
+    project.delete();
+    assertNull(GateIndex.getLatest(project));
+    assertFalse(GateIndex.contains(folder));
+  }
+
+  @Test
+  public void gateIndexSeededFromStoredHistory() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()));
+    Build build = buildAndAssertSuccess(withDefault());
+    // a job whose history was written before the latest entry was kept apart
+    FreeStyleProject copy = j.createFreeStyleProject();
+    FileUtils.copyFile(new File(build.getParent().getRootDir(), GateHistory.JOURNAL_FILE_NAME), new File(copy.getRootDir(), GateHistory.JOURNAL_FILE_NAME));
+    assertNull(GateIndex.getLatest(copy));
+
+    GateIndex.seed();
+    assertEquals(build.getNumber(), GateIndex.getLatest(copy).getNumber());
+    assertTrue(new File(copy.getRootDir(), GateHistory.LATEST_FILE_NAME).exists());
+  }
+
+  // the first sample has too many slow requests, the others have none
+  private void stubNoisySamples() {
+    String cleanJson = getCleanIssuesJson();
+    stubFor(get(urlMatching("/api/applications/" + APP_NAME + "/issues/.*"))
+        .inScenario(NOISY_SCENARIO).whenScenarioStateIs(Scenario.STARTED)
+        .willReturn(ok().withBody(getIssuesJson()))
+        .willSetStateTo("clean"));
+    stubFor(get(urlMatching("/api/applications/" + APP_NAME + "/issues/.*"))
+        .inScenario(NOISY_SCENARIO).whenScenarioStateIs("clean")
+        .willReturn(ok().withBody(cleanJson)));
+  }
+
   private void stubIssuesApi(ResponseDefinitionBuilder response) {
     stubFor(get(urlMatching("/api/applications/" + APP_NAME + "/issues/.*"))
         .withHeader("authorization", equalTo(API_TOKEN))
@@ -275,13 +622,9 @@ public class QRebelTestPublisherTest {
     stubIssuesApi(aResponse().withStatus(status).withBody(responseBody));
   }
 
-  private String getIssuesJson() {
-    try {
-      return IOUtils.toString(this.getClass().getResourceAsStream("issues.json"));
-    }
-    catch (IOException e) {
-      throw new IllegalStateException(e);
-    }
+  // the same entry points without any issues
+  private String getCleanIssuesJson() {
+    return new Gson().toJson(new Gson().fromJson(getIssuesJson(), IssuesResponse.class).withIssuesCount(new IssuesCount(0L, 0L, 0L)));
   }
 
   private String setResponseVersions(String json, String baselineVersion, String targetVersion) {
@@ -371,4 +714,17 @@ public class QRebelTestPublisherTest {
     project.getPublishersList().add(publisher);
     return j.buildAndAssertSuccess(project);
   }
+
+  private HttpURLConnection openHistory(Build build, String format, String eTag) throws IOException {
+    return openHistory(build, format, "limit=10", eTag);
+  }
+
+  private HttpURLConnection openHistory(Build build, String format, String query, String eTag) throws IOException {
+    URL url = new URL(j.getURL(), build.getParent().getUrl() + GateHistoryAction.URL_NAME + "/" + format + "?" + query);
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    if (eTag != null) {
+      connection.setRequestProperty("If-None-Match", eTag);
+    }
+    return connection;
+  }
 }
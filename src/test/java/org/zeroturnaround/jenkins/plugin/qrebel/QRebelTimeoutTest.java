@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.zeroturnaround.jenkins.plugin.qrebel.ComparisonStrategy.DEFAULT_BASELINE;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import hudson.model.Build;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+
+/**
+ * Gates cut short by their timeout or by aborting the build, while QRebel stalls.
+ * The stalls are far longer than the gates may take, so the bounds hold on loaded agents too.
+ */
+public class QRebelTimeoutTest {
+
+  private static final String APP_NAME = "foobar";
+  private static final String TARGET_BUILD = "2.0.6RC3";
+  private static final String TARGET_VERSION = "1";
+  private static final String BASELINE_BUILD = "2.05RC1";
+  private static final String API_TOKEN = "correct-key";
+  private static final String ISSUES_URL = "/api/applications/" + APP_NAME + "/issues/.*";
+  private static final int THREE_SAMPLES = 3;
+  private static final long NO_INTERVAL = 0L;
+  private static final long ONE_SECOND_GATE_TIMEOUT = 1L;
+  private static final int STALLED_RESPONSE_MILLIS = 60000;
+  private static final int ABORTED_BUILDS = 3;
+
+  @Rule
+  public JenkinsRule j = new JenkinsRule();
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+  @Test
+  public void slowQueryCutByGateTimeout() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()).withFixedDelay(STALLED_RESPONSE_MILLIS));
+    FreeStyleProject project = j.createFreeStyleProject();
+    project.getPublishersList().add(withDefault().withGateTimeout(ONE_SECOND_GATE_TIMEOUT).withTimeoutResult(Result.UNSTABLE.toString()));
+    Build build = j.assertBuildStatus(Result.UNSTABLE, project.scheduleBuild2(0));
+    j.assertLogContains("QRebel gate exceeded its deadline of 1 s during query", build);
+    j.assertLogContains("QRebel gate timing: field resolution", build);
+    assertTrue(build.getDuration() < STALLED_RESPONSE_MILLIS);
+  }
+
+  @Test
+  public void slowSamplesCutByGateTimeout() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()).withFixedDelay(STALLED_RESPONSE_MILLIS));
+    FreeStyleProject project = j.createFreeStyleProject();
+    project.getPublishersList().add(withDefault().withSamples(THREE_SAMPLES).withSampleInterval(NO_INTERVAL)
+        .withGateTimeout(ONE_SECOND_GATE_TIMEOUT).withTimeoutResult(Result.UNSTABLE.toString()));
+    Build build = j.assertBuildStatus(Result.UNSTABLE, project.scheduleBuild2(0));
+    j.assertLogContains("QRebel gate exceeded its deadline of 1 s during query", build);
+    assertTrue(build.getDuration() < STALLED_RESPONSE_MILLIS);
+    verify(THREE_SAMPLES, getRequestedFor(urlMatching(ISSUES_URL)));
+  }
+
+  @Test
+  public void abortedBuildsStopWaitingForStalledQueries() throws Exception {
+    stubIssuesApi(ok().withBody(getIssuesJson()).withFixedDelay(STALLED_RESPONSE_MILLIS));
+    j.jenkins.setNumExecutors(ABORTED_BUILDS);
+    List<FreeStyleBuild> builds = new ArrayList<>();
+    for (int i = 0; i < ABORTED_BUILDS; i++) {
+      FreeStyleProject project = j.createFreeStyleProject();
+      project.getPublishersList().add(withDefault());
+      builds.add(project.scheduleBuild2(0).waitForStart());
+    }
+    while (findAll(getRequestedFor(urlMatching(ISSUES_URL))).size() < ABORTED_BUILDS) {
+      Thread.sleep(10);
+    }
+
+    for (FreeStyleBuild build : builds) {
+      build.getExecutor().interrupt();
+    }
+    // the requests themselves are closed by cancelling their tasks, see QRebelCancellationTest
+    for (FreeStyleBuild build : builds) {
+      j.assertBuildStatus(Result.ABORTED, j.waitForCompletion(build));
+      assertTrue(build.getDuration() < STALLED_RESPONSE_MILLIS);
+    }
+    // none of the builds asked again
+    verify(ABORTED_BUILDS, getRequestedFor(urlMatching(ISSUES_URL)));
+  }
+
+  private void stubIssuesApi(ResponseDefinitionBuilder response) {
+    stubFor(get(urlMatching(ISSUES_URL))
+        .withHeader("authorization", equalTo(API_TOKEN))
+        .withQueryParam("targetBuild", equalTo(TARGET_BUILD))
+        .willReturn(response));
+  }
+
+  private QRebelPublisher withDefault() {
+    return new QRebelPublisher(APP_NAME, TARGET_BUILD, TARGET_VERSION, BASELINE_BUILD, TARGET_VERSION,
+        API_TOKEN, wireMockRule.baseUrl() + "/api", DEFAULT_BASELINE.name(), 15L, 0L, 2L, 0L,
+        true, true, true);
+  }
+}
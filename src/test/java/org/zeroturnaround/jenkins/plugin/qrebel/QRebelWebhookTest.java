@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.zeroturnaround.jenkins.plugin.qrebel.rest.IssuesResponse;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.gson.Gson;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.queue.QueueTaskFuture;
+import hudson.util.Secret;
+
+public class QRebelWebhookTest {
+
+  private static final String APP_NAME = "foobar";
+  private static final String TARGET_BUILD = "2.0.6RC3";
+  private static final String TARGET_VERSION = "1";
+  private static final String OTHER_TARGET_VERSION = "2";
+  private static final String API_TOKEN = "correct-key";
+  private static final String SECRET = "webhook-secret";
+  private static final String WRONG_SECRET = "guessed-secret";
+  private static final long LONG_PUSH_TIMEOUT = 60L;
+  private static final long SHORT_PUSH_TIMEOUT = 1L;
+  private static final String ISSUES_URL = "/api/applications/" + APP_NAME + "/issues/.*";
+
+  @Rule
+  public JenkinsRule j = new JenkinsRule();
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(WireMockConfiguration.wireMockConfig().dynamicPort());
+
+  @Before
+  public void configureSecret() {
+    QRebelGlobalConfiguration.get().setWebhookSecret(Secret.fromString(SECRET));
+  }
+
+  @Test
+  public void pushedAnalysisWakesWaitingGate() throws Exception {
+    QueueTaskFuture<FreeStyleBuild> future = scheduleGatedBuild(LONG_PUSH_TIMEOUT);
+    FreeStyleBuild build = future.waitForStart();
+    j.waitForMessage("Waiting up to", build);
+
+    assertEquals(202, pushAnalysis(SECRET));
+    j.assertBuildStatusSuccess(future);
+    j.assertLogContains("Analysis pushed by QRebel", build);
+    verify(0, getRequestedFor(urlMatching(ISSUES_URL)));
+  }
+
+  @Test
+  public void blankVersionAcceptsVersionFilledInByQRebel() throws Exception {
+    QueueTaskFuture<FreeStyleBuild> future = scheduleGatedBuild(null, LONG_PUSH_TIMEOUT);
+    FreeStyleBuild build = future.waitForStart();
+    j.waitForMessage("Waiting up to", build);
+
+    assertEquals(202, pushAnalysis(SECRET));
+    j.assertBuildStatusSuccess(future);
+    j.assertLogContains("Analysis pushed by QRebel", build);
+    verify(0, getRequestedFor(urlMatching(ISSUES_URL)));
+  }
+
+  @Test
+  public void analysisOfOtherVersionNotAccepted() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).willReturn(ok().withBody(getIssuesJson())));
+    QueueTaskFuture<FreeStyleBuild> future = scheduleGatedBuild(OTHER_TARGET_VERSION, SHORT_PUSH_TIMEOUT);
+    FreeStyleBuild build = future.waitForStart();
+    j.waitForMessage("Waiting up to", build);
+
+    assertEquals(204, pushAnalysis(SECRET));
+    j.assertBuildStatusSuccess(future);
+    j.assertLogContains("No analysis pushed by QRebel in time", build);
+  }
+
+  @Test
+  public void analysisOfOtherStrategyNotAccepted() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).willReturn(ok().withBody(getIssuesJson())));
+    QueueTaskFuture<FreeStyleBuild> future = scheduleGatedBuild(SHORT_PUSH_TIMEOUT);
+    FreeStyleBuild build = future.waitForStart();
+    j.waitForMessage("Waiting up to", build);
+
+    assertEquals(204, pushAnalysis(SECRET, ComparisonStrategy.DEFAULT_BASELINE, now()));
+    j.assertBuildStatusSuccess(future);
+    j.assertLogContains("No analysis pushed by QRebel in time", build);
+    verify(1, getRequestedFor(urlMatching(ISSUES_URL)));
+  }
+
+  @Test
+  public void analysisNotAwaitedDropped() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).willReturn(ok().withBody(getIssuesJson())));
+    assertEquals(204, pushAnalysis(SECRET));
+    FreeStyleBuild build = j.assertBuildStatusSuccess(scheduleGatedBuild(SHORT_PUSH_TIMEOUT));
+    j.assertLogContains("No analysis pushed by QRebel in time", build);
+  }
+
+  @Test
+  public void staleOrReplayedAnalysisRejected() throws Exception {
+    assertEquals(403, pushAnalysis(SECRET, ComparisonStrategy.THRESHOLD, now() - TimeUnit.HOURS.toSeconds(1)));
+    long timestamp = now();
+    assertEquals(204, pushAnalysis(SECRET, ComparisonStrategy.THRESHOLD, timestamp));
+    assertEquals(403, pushAnalysis(SECRET, ComparisonStrategy.THRESHOLD, timestamp));
+  }
+
+  @Test
+  public void unsignedAnalysisRejected() throws Exception {
+    stubFor(get(urlMatching(ISSUES_URL)).willReturn(ok().withBody(getIssuesJson())));
+    QueueTaskFuture<FreeStyleBuild> future = scheduleGatedBuild(SHORT_PUSH_TIMEOUT);
+    FreeStyleBuild build = future.waitForStart();
+
+    assertEquals(403, pushAnalysis(WRONG_SECRET));
+    j.assertBuildStatusSuccess(future);
+    j.assertLogContains("No analysis pushed by QRebel in time", build);
+    verify(1, getRequestedFor(urlMatching(ISSUES_URL)));
+  }
+
+  private QueueTaskFuture<FreeStyleBuild> scheduleGatedBuild(long pushTimeout) throws IOException {
+    return scheduleGatedBuild(TARGET_VERSION, pushTimeout);
+  }
+
+  private QueueTaskFuture<FreeStyleBuild> scheduleGatedBuild(String targetVersion, long pushTimeout) throws IOException {
+    FreeStyleProject project = j.createFreeStyleProject();
+    project.getPublishersList().add(new QRebelPublisher(APP_NAME, TARGET_BUILD, targetVersion, null, null,
+        API_TOKEN, wireMockRule.baseUrl() + "/api", ComparisonStrategy.THRESHOLD.name(), 15L, 0L, 2L, 0L,
+        true, true, true).withPushTimeout(pushTimeout));
+    return project.scheduleBuild2(0);
+  }
+
+  private int pushAnalysis(String secret) throws IOException {
+    return pushAnalysis(secret, ComparisonStrategy.THRESHOLD, now());
+  }
+
+  // stands in for QRebel posting a finished analysis
+  private int pushAnalysis(String secret, ComparisonStrategy strategy, long timestamp) throws IOException {
+    IssuesResponse analysis = new Gson().fromJson(getIssuesJson(), IssuesResponse.class).withAppName(APP_NAME);
+    byte[] body = new Gson().toJson(analysis).getBytes(StandardCharsets.UTF_8);
+    HttpURLConnection connection = (HttpURLConnection) new URL(j.getURL(), QRebelRootAction.URL_NAME + "/" + QRebelRootAction.WEBHOOK).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    connection.setRequestProperty(QRebelRootAction.TIMESTAMP_HEADER, String.valueOf(timestamp));
+    connection.setRequestProperty(QRebelRootAction.STRATEGY_HEADER, strategy.name());
+    connection.setRequestProperty(QRebelRootAction.SIGNATURE_HEADER, QRebelRootAction.sign(secret, String.valueOf(timestamp), strategy.name(), body));
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(body);
+    }
+    return connection.getResponseCode();
+  }
+
+  private static long now() {
+    return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import org.junit.Test;
+
+/**
+ * Measures the hand-written codec against reflective Gson on a large issues response.
+ * Timing-dependent, so it only runs in the performance profile (mvn test -Pperformance).
+ * Sizes and the required speed-up can be changed with the qrebel.benchmark.* system properties.
+ */
+public class IssuesJsonBenchmarkTest {
+
+  private static final Logger LOGGER = Logger.getLogger(IssuesJsonBenchmarkTest.class.getName());
+
+  private static final int ENTRY_POINTS = Integer.getInteger("qrebel.benchmark.entryPoints", 5000);
+  private static final int ITERATIONS = Integer.getInteger("qrebel.benchmark.iterations", 50);
+  private static final double MIN_SPEEDUP = Double.parseDouble(System.getProperty("qrebel.benchmark.minSpeedup", "1.5"));
+
+  @Test
+  public void decodesFasterWithLessAllocation() {
+    String json = IssuesJsonTest.createJson(ENTRY_POINTS);
+    Measurement reflective = measure(value -> IssuesJsonTest.REFLECTIVE.fromJson(value, IssuesResponse.class), json);
+    Measurement handWritten = measure(value -> IssuesJson.GSON.fromJson(value, IssuesResponse.class), json);
+
+    double speedup = (double) reflective.nanos / handWritten.nanos;
+    LOGGER.info(String.format("Decoding %d entry points x %d: reflective %d ms %d KB/response, hand-written %d ms %d KB/response, speed-up %.2f",
+        ENTRY_POINTS, ITERATIONS,
+        reflective.nanos / 1000000, reflective.bytesPerResponse / 1024,
+        handWritten.nanos / 1000000, handWritten.bytesPerResponse / 1024, speedup));
+    assertTrue("Speed-up " + speedup + " below " + MIN_SPEEDUP, speedup >= MIN_SPEEDUP);
+    // -1 when the JVM cannot tell
+    if (reflective.bytesPerResponse >= 0 && handWritten.bytesPerResponse >= 0) {
+      assertTrue("Allocated " + handWritten.bytesPerResponse + " bytes/response, reflective " + reflective.bytesPerResponse,
+          handWritten.bytesPerResponse < reflective.bytesPerResponse);
+    }
+  }
+
+  private static Measurement measure(Function<String, IssuesResponse> decoder, String json) {
+    // warm-up
+    for (int i = 0; i < ITERATIONS; i++) {
+      decoder.apply(json);
+    }
+    long allocatedBefore = getAllocatedBytes();
+    long started = System.nanoTime();
+    int entryPoints = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      entryPoints += decoder.apply(json).entryPoints.size();
+    }
+    long nanos = System.nanoTime() - started;
+    long allocatedAfter = getAllocatedBytes();
+    assertEquals(ENTRY_POINTS * ITERATIONS, entryPoints);
+    return new Measurement(nanos, allocatedBefore < 0 ? -1L : (allocatedAfter - allocatedBefore) / ITERATIONS);
+  }
+
+  // -1 when the JVM cannot tell
+  private static long getAllocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1L;
+  }
+
+  private static final class Measurement {
+    private final long nanos;
+    private final long bytesPerResponse;
+
+    private Measurement(long nanos, long bytesPerResponse) {
+      this.nanos = nanos;
+      this.bytesPerResponse = bytesPerResponse;
+    }
+  }
+}
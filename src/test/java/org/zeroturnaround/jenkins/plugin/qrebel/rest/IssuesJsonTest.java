@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import com.google.gson.Gson;
+
+import feign.QueryMapEncoder;
+
+/**
+ * Checks the hand-written codec against reflective Gson on a large issues response
+ */
+public class IssuesJsonTest {
+
+  private static final int ENTRY_POINTS = 5000;
+
+  static final Gson REFLECTIVE = new Gson();
+
+  @Test
+  public void decodesLikeReflectiveGson() {
+    String json = createJson(ENTRY_POINTS);
+    IssuesResponse expected = REFLECTIVE.fromJson(json, IssuesResponse.class);
+    IssuesResponse actual = IssuesJson.GSON.fromJson(json, IssuesResponse.class);
+
+    assertEquals(expected.appName, actual.appName);
+    assertEquals(expected.targetBuild, actual.targetBuild);
+    assertEquals(expected.issuesCount.DURATION, actual.issuesCount.DURATION);
+    assertEquals(expected.issuesCount.EXCEPTIONS, actual.issuesCount.EXCEPTIONS);
+    assertEquals(expected.issuesCount.IO, actual.issuesCount.IO);
+    assertEquals(expected.entryPoints.size(), actual.entryPoints.size());
+    for (int i = 0; i < expected.entryPoints.size(); i++) {
+      assertEquals(expected.entryPoints.get(i).name, actual.entryPoints.get(i).name);
+      assertEquals(expected.entryPoints.get(i).duration.slowestPercentile, actual.entryPoints.get(i).duration.slowestPercentile);
+    }
+  }
+
+  @Test
+  public void encodesQueryLikeReflectiveEncoder() {
+    IssuesRequest request = IssuesRequest.builder()
+        .targetBuild("2.0.6RC3")
+        .slowRequestsAllowed(1L)
+        .excessiveIOAllowed(2L)
+        .exceptionsAllowed(3L)
+        .jenkinsPluginVersion("1.0")
+        .defaultBaseline(true)
+        .issues("DURATION,IO")
+        .build();
+    assertEquals(new QueryMapEncoder.Default().encode(request), request.toQueryMap());
+  }
+
+  static String createJson(int size) {
+    List<EntryPoint> entryPoints = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      entryPoints.add(new EntryPoint("GET /api/owners/" + i, new Duration((long) i % 5000)));
+    }
+    return REFLECTIVE.toJson(new IssuesResponse("foo", "2.0.6RC1", "1", "2.0.6RC3", "1", "http://qrebel/app/foo",
+        new IssuesCount(15L, 2L, 0L), entryPoints, null, false));
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.junit.Test;
+
+/**
+ * Bounded parsing of spilled issues responses
+ */
+public class IssuesStreamParserTest {
+
+  private static final int ENTRY_POINTS = 17;
+  private static final long SLOWEST_REQUEST = 3770L;
+
+  @Test
+  public void responseWithinLimitNotTruncated() throws IOException {
+    IssuesResponse response = parse(ENTRY_POINTS);
+    assertFalse(response.truncated);
+    assertEquals(ENTRY_POINTS, response.entryPoints.size());
+  }
+
+  @Test
+  public void droppedEntryPointsMarkResponseTruncated() throws IOException {
+    IssuesResponse response = parse(3);
+    assertTrue(response.truncated);
+    assertEquals(3, response.entryPoints.size());
+    assertTrue(response.entryPoints.stream().anyMatch(entryPoint -> entryPoint.duration.slowestPercentile == SLOWEST_REQUEST));
+  }
+
+  private IssuesResponse parse(int maxEntryPoints) throws IOException {
+    try (Reader reader = new StringReader(getIssuesJson())) {
+      return new IssuesStreamParser(maxEntryPoints).parse(reader);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Test;
+
+import feign.RetryableException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * Timeouts and retries of gate clients fitting in the time left
+ */
+public class QRebelRestApiClientTest {
+
+  private static final String APP_NAME = "foobar";
+  private static final long SLOW_RESPONSE_MILLIS = 5000L;
+  private static final long SHORT_DEADLINE_MILLIS = 500L;
+  private static final long MAX_IN_MEMORY_BYTES = 1024L * 1024L;
+
+  private final MockWebServer server = new MockWebServer();
+  private final PrintStream logger = new PrintStream(new NullOutputStream());
+
+  @After
+  public void shutdown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void laterRequestsCappedToTimeLeft() throws Exception {
+    String issuesJson = getIssuesJson();
+    server.enqueue(new MockResponse().setBody(issuesJson));
+    server.enqueue(new MockResponse().setBody(issuesJson).setHeadersDelay(SLOW_RESPONSE_MILLIS, TimeUnit.MILLISECONDS));
+    server.start();
+
+    // plenty of time when the client is created and for the first request
+    AtomicLong deadline = new AtomicLong(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+    QRebelRestApi restApi = QRebelRestApiClient.create(server.url("/api").toString(), logger, Transport.URL_CONNECTION.createClient(),
+        MAX_IN_MEMORY_BYTES, new File(System.getProperty("java.io.tmpdir")), () -> deadline.get() - System.currentTimeMillis());
+    IssuesRequest request = IssuesRequest.builder()
+        .targetBuild("2.0.6RC3")
+        .slowRequestsAllowed(0L)
+        .excessiveIOAllowed(0L)
+        .exceptionsAllowed(0L)
+        .jenkinsPluginVersion("test")
+        .build();
+    assertEquals("foo", restApi.getIssues("token", APP_NAME, request).appName);
+
+    deadline.set(System.currentTimeMillis() + SHORT_DEADLINE_MILLIS);
+    long started = System.currentTimeMillis();
+    try {
+      restApi.getIssues("token", APP_NAME, request);
+      fail("The slow response should have timed out");
+    }
+    catch (RetryableException e) {
+      // read timeout of the time left, no retry after the deadline
+      long elapsed = System.currentTimeMillis() - started;
+      assertTrue("Took " + elapsed + " ms", elapsed < SLOW_RESPONSE_MILLIS / 2);
+      assertEquals(2, server.getRequestCount());
+    }
+  }
+}
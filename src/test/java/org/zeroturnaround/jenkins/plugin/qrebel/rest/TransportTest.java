@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018-2019, Rogue Wave Software, Inc., http://www.roguewave.com
+ * <p>
+ * This software is released under the terms of the
+ * MIT license. See https://opensource.org/licenses/MIT
+ * for more information.
+ */
+package org.zeroturnaround.jenkins.plugin.qrebel.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.zeroturnaround.jenkins.plugin.qrebel.Fixtures.getIssuesJson;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.After;
+import org.junit.Test;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Compares the connections opened by the transports for parallel gate queries to one server
+ */
+public class TransportTest {
+
+  private static final int PARALLEL_REQUESTS = 20;
+  private static final long SERVER_DELAY_MILLIS = 200L;
+  private static final String APP_NAME = "foobar";
+
+  private final MockWebServer server = new MockWebServer();
+  private final PrintStream logger = new PrintStream(new NullOutputStream());
+
+  @After
+  public void shutdown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void http2MultiplexesParallelRequestsOverOneConnection() throws Exception {
+    server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+    runParallel(Transport.H2C);
+    assertEquals(1, countConnections());
+  }
+
+  @Test
+  public void urlConnectionOpensConnectionPerParallelRequest() throws Exception {
+    runParallel(Transport.URL_CONNECTION);
+    assertTrue(countConnections() > 1);
+  }
+
+  // parallel requests, sent after one request has opened the first connection
+  private void runParallel(Transport transport) throws Exception {
+    String issuesJson = getIssuesJson();
+    server.setDispatcher(new Dispatcher() {
+      @Override
+      public MockResponse dispatch(RecordedRequest request) {
+        return new MockResponse().setBody(issuesJson).setHeadersDelay(SERVER_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    });
+    server.start();
+
+    QRebelRestApi restApi = QRebelRestApiClient.create(server.url("/api").toString(), logger, transport.createClient());
+    IssuesRequest request = IssuesRequest.builder()
+        .targetBuild("2.0.6RC3")
+        .slowRequestsAllowed(0L)
+        .excessiveIOAllowed(0L)
+        .exceptionsAllowed(0L)
+        .jenkinsPluginVersion("test")
+        .build();
+    restApi.getIssues("token", APP_NAME, request);
+
+    ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_REQUESTS);
+    try {
+      List<Callable<IssuesResponse>> calls = new ArrayList<>();
+      for (int i = 0; i < PARALLEL_REQUESTS; i++) {
+        calls.add(() -> restApi.getIssues("token", APP_NAME, request));
+      }
+      for (Future<IssuesResponse> future : executor.invokeAll(calls)) {
+        assertEquals("foo", future.get().appName);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // a sequence number of 0 marks the first request on a new connection
+  private int countConnections() throws InterruptedException {
+    int connections = 0;
+    for (int i = 0; i < PARALLEL_REQUESTS + 1; i++) {
+      if (server.takeRequest().getSequenceNumber() == 0) {
+        connections++;
+      }
+    }
+    return connections;
+  }
+}